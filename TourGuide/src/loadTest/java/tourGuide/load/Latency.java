@@ -0,0 +1,38 @@
+package tourGuide.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uniformly distributed latency injected by the stand-ins of the external libraries.
+ */
+public class Latency {
+	private final long minMillis;
+	private final long maxMillis;
+	
+	public Latency(long minMillis, long maxMillis) {
+		this.minMillis = minMillis;
+		this.maxMillis = Math.max(minMillis, maxMillis);
+	}
+	
+	public static Latency parse(String range) {
+		String[] bounds = range.split("-");
+		long min = Long.parseLong(bounds[0].trim());
+		return new Latency(min, bounds.length > 1 ? Long.parseLong(bounds[1].trim()) : min);
+	}
+	
+	public void pause() {
+		long millis = minMillis == maxMillis ? minMillis : ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+		try {
+			TimeUnit.MILLISECONDS.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return minMillis + "-" + maxMillis + "ms";
+	}
+
+}
@@ -0,0 +1,40 @@
+package tourGuide.load;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Local stand-in for gpsUtil answering random locations after an injected latency.
+ */
+public class LatencyGpsUtil extends GpsUtil {
+	private final Latency latency;
+	private final List<Attraction> attractions;
+	
+	public LatencyGpsUtil(Latency latency) {
+		this.latency = latency;
+		this.attractions = super.getAttractions();
+	}
+	
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		latency.pause();
+		double longitude = ThreadLocalRandom.current().nextDouble(-180.0, 180.0);
+		double latitude = ThreadLocalRandom.current().nextDouble(-85.05112878, 85.05112878);
+		return new VisitedLocation(userId, new Location(latitude, longitude), new Date());
+	}
+	
+	@Override
+	public List<Attraction> getAttractions() {
+		latency.pause();
+		return new ArrayList<>(attractions);
+	}
+
+}
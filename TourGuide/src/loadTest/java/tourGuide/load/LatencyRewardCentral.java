@@ -0,0 +1,24 @@
+package tourGuide.load;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import rewardCentral.RewardCentral;
+
+/**
+ * Local stand-in for RewardCentral answering random points after an injected latency.
+ */
+public class LatencyRewardCentral extends RewardCentral {
+	private final Latency latency;
+	
+	public LatencyRewardCentral(Latency latency) {
+		this.latency = latency;
+	}
+	
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		latency.pause();
+		return ThreadLocalRandom.current().nextInt(1, 1000);
+	}
+
+}
@@ -0,0 +1,32 @@
+package tourGuide.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import tripPricer.Provider;
+import tripPricer.TripPricer;
+
+/**
+ * Local stand-in for TripPricer answering five random deals after an injected latency.
+ */
+public class LatencyTripPricer extends TripPricer {
+	private final Latency latency;
+	
+	public LatencyTripPricer(Latency latency) {
+		this.latency = latency;
+	}
+	
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints) {
+		latency.pause();
+		List<Provider> providers = new ArrayList<>();
+		for(int i = 0; i < 5; i++) {
+			double price = ThreadLocalRandom.current().nextDouble(100, 1000) * (adults + children * 0.7) * nightsStay;
+			providers.add(new Provider(UUID.randomUUID(), "Load Test Provider " + i, Math.max(0, price - rewardsPoints)));
+		}
+		return providers;
+	}
+
+}
@@ -0,0 +1,240 @@
+package tourGuide.load;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import tourGuide.Application;
+import tourGuide.helper.InternalTestHelper;
+
+/**
+ * Starts TourGuide against the latency-injecting stand-ins and replays a mix of REST calls at a fixed rate.
+ * 
+ * Latencies are measured from the time each request was scheduled to start, so a stalled server is not
+ * hidden by the harness waiting on it. Percentiles are printed at the end and written as HdrHistogram
+ * percentile distributions (.hgrm) and an interval log (.hlog) to compare between builds.
+ * 
+ * Requests are also bucketed per second from the first one, warm-up included, to report how long after
+ * the application started the p99 of every following second stays within stableTolerance of the
+ * steady-state p99.
+ * 
+ * Options, all optional, as key=value arguments:
+ *     users=1000 rate=200 duration=60 warmup=10 threads=200 port=8089 output=build/loadTest stableTolerance=1.2
+ *     mix=getLocation:40,getNearbyAttractions:20,getRewards:20,getTripDeals:10,getAllCurrentLocations:10
+ *     gpsUtilLatency=30-100 rewardCentralLatency=1-1000 tripPricerLatency=50-200
+ */
+public class LoadHarness {
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+	private static final String DEFAULT_MIX = "getLocation:40,getNearbyAttractions:20,getRewards:20,getTripDeals:10,getAllCurrentLocations:10";
+	
+	private final Map<String, String> options;
+	private final Map<String, Integer> mix = new LinkedHashMap<>();
+	private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+	private final Map<String, AtomicLong> errors = new LinkedHashMap<>();
+	private final List<String> weightedEndpoints = new ArrayList<>();
+	private final List<Histogram> secondHistograms = new ArrayList<>();
+	private volatile boolean recording = false;
+	
+	public LoadHarness(Map<String, String> options) {
+		this.options = options;
+		for(String entry : option("mix", DEFAULT_MIX).split(",")) {
+			String[] endpointWeight = entry.split(":");
+			String endpoint = endpointWeight[0].trim();
+			int weight = Integer.parseInt(endpointWeight[1].trim());
+			mix.put(endpoint, weight);
+			histograms.put(endpoint, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+			errors.put(endpoint, new AtomicLong());
+			for(int i = 0; i < weight; i++) {
+				weightedEndpoints.add(endpoint);
+			}
+		}
+	}
+	
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new LinkedHashMap<>();
+		for(String arg : args) {
+			String[] keyValue = arg.split("=", 2);
+			options.put(keyValue[0], keyValue.length > 1 ? keyValue[1] : "");
+		}
+		new LoadHarness(options).run();
+		System.exit(0);
+	}
+	
+	public void run() throws InterruptedException, FileNotFoundException {
+		int users = Integer.parseInt(option("users", "1000"));
+		int port = Integer.parseInt(option("port", "8089"));
+		InternalTestHelper.setInternalUserNumber(users);
+		long applicationStart = System.nanoTime();
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class, LoadTestModule.class)
+				.properties("server.port=" + port,
+						"logging.level.tourGuide=INFO",
+						"loadtest.latency.gps-util=" + option("gpsUtilLatency", "30-100"),
+						"loadtest.latency.reward-central=" + option("rewardCentralLatency", "1-1000"),
+						"loadtest.latency.trip-pricer=" + option("tripPricerLatency", "50-200"))
+				.run();
+		try {
+			replay("http://localhost:" + port, users, applicationStart);
+		} finally {
+			context.close();
+		}
+	}
+	
+	private void replay(String baseUrl, int users, long applicationStart) throws InterruptedException, FileNotFoundException {
+		double rate = Double.parseDouble(option("rate", "200"));
+		long warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option("warmup", "10")));
+		long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option("duration", "60")));
+		long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+		ExecutorService executorService = Executors.newFixedThreadPool(Integer.parseInt(option("threads", "200")));
+		
+		System.out.println("Replaying " + mix + " at " + rate + " req/s for " + users + " users");
+		long start = System.nanoTime();
+		long recordingStart = start + warmupNanos;
+		long end = recordingStart + durationNanos;
+		for(long second = 0; second < TimeUnit.NANOSECONDS.toSeconds(end - start) + 1; second++) {
+			secondHistograms.add(new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 2));
+		}
+		long recordingStartMillis = System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(warmupNanos);
+		for(long i = 0; ; i++) {
+			long intendedStart = start + i * intervalNanos;
+			if(intendedStart >= end) {
+				break;
+			}
+			if(!recording && intendedStart >= recordingStart) {
+				recording = true;
+			}
+			long wait = intendedStart - System.nanoTime();
+			if(wait > 0) {
+				TimeUnit.NANOSECONDS.sleep(wait);
+			}
+			String endpoint = weightedEndpoints.get(ThreadLocalRandom.current().nextInt(weightedEndpoints.size()));
+			String userName = "internalUser" + ThreadLocalRandom.current().nextInt(users);
+			boolean recorded = recording;
+			Histogram secondHistogram = secondHistograms.get((int) TimeUnit.NANOSECONDS.toSeconds(intendedStart - start));
+			executorService.execute(() -> send(baseUrl, endpoint, userName, intendedStart, recorded, secondHistogram));
+		}
+		executorService.shutdown();
+		executorService.awaitTermination(5, TimeUnit.MINUTES);
+		Histogram total = report(recordingStartMillis, System.currentTimeMillis(), TimeUnit.NANOSECONDS.toSeconds(durationNanos));
+		reportTimeToStable(total, TimeUnit.NANOSECONDS.toMillis(start - applicationStart));
+	}
+	
+	private void send(String baseUrl, String endpoint, String userName, long intendedStart, boolean recorded,
+			Histogram secondHistogram) {
+		boolean failed = false;
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/" + endpoint + "?userName=" + userName).openConnection();
+			connection.setConnectTimeout(10000);
+			connection.setReadTimeout(60000);
+			failed = connection.getResponseCode() != 200;
+			try (InputStream body = failed ? connection.getErrorStream() : connection.getInputStream()) {
+				drain(body);
+			}
+		} catch (IOException e) {
+			failed = true;
+		}
+		long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+		secondHistogram.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+		if(recorded) {
+			histograms.get(endpoint).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+			if(failed) {
+				errors.get(endpoint).incrementAndGet();
+			}
+		}
+	}
+	
+	private static void drain(InputStream body) throws IOException {
+		if(body == null) {
+			return;
+		}
+		byte[] buffer = new byte[8192];
+		while(body.read(buffer) != -1) {
+			// discard
+		}
+	}
+	
+	private Histogram report(long startMillis, long endMillis, long durationSeconds) throws FileNotFoundException {
+		File output = new File(option("output", "build/loadTest"));
+		output.mkdirs();
+		HistogramLogWriter logWriter = new HistogramLogWriter(new File(output, "latency.hlog"));
+		logWriter.outputComment("TourGuide load test, values in microseconds, options " + options);
+		logWriter.outputLogFormatVersion();
+		logWriter.outputStartTime(startMillis);
+		logWriter.outputLegend();
+		
+		Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+		System.out.println(String.format("%-24s %10s %10s %10s %10s %10s %10s %8s",
+				"endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors"));
+		for(Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+			Histogram histogram = entry.getValue();
+			histogram.setTag(entry.getKey());
+			histogram.setStartTimeStamp(startMillis);
+			histogram.setEndTimeStamp(endMillis);
+			logWriter.outputIntervalHistogram(histogram);
+			total.add(histogram);
+			printSummary(entry.getKey(), histogram, errors.get(entry.getKey()).get(), durationSeconds);
+			try (PrintStream distribution = new PrintStream(new File(output, entry.getKey() + ".hgrm"))) {
+				histogram.outputPercentileDistribution(distribution, 1000.0);
+			}
+		}
+		long totalErrors = errors.values().stream().mapToLong(AtomicLong::get).sum();
+		printSummary("all", total, totalErrors, durationSeconds);
+		try (PrintStream distribution = new PrintStream(new File(output, "all.hgrm"))) {
+			total.outputPercentileDistribution(distribution, 1000.0);
+		}
+		logWriter.close();
+		System.out.println("Histograms written to " + output.getAbsolutePath());
+		return total;
+	}
+	
+	private void reportTimeToStable(Histogram total, long startupMillis) {
+		double tolerance = Double.parseDouble(option("stableTolerance", "1.2"));
+		long stableP99 = (long) (total.getValueAtPercentile(99) * tolerance);
+		// First second after which no second has its p99 above the tolerated steady-state p99
+		int stableSecond = secondHistograms.size();
+		for(int second = secondHistograms.size() - 1; second >= 0; second--) {
+			Histogram histogram = secondHistograms.get(second);
+			if(histogram.getTotalCount() > 0 && histogram.getValueAtPercentile(99) > stableP99) {
+				break;
+			}
+			stableSecond = second;
+		}
+		if(stableSecond >= secondHistograms.size()) {
+			System.out.println("p99 never stabilized within " + tolerance + " times the steady-state p99");
+			return;
+		}
+		System.out.println(String.format("Application started in %.1f s, p99 stable within %.1fx of %.2f ms after %.1f s from start",
+				startupMillis / 1000.0, tolerance, total.getValueAtPercentile(99) / 1000.0,
+				(startupMillis + TimeUnit.SECONDS.toMillis(stableSecond)) / 1000.0));
+	}
+	
+	private static void printSummary(String name, Histogram histogram, long errors, long durationSeconds) {
+		System.out.println(String.format("%-24s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %8d", name,
+				histogram.getTotalCount(), (double) histogram.getTotalCount() / Math.max(1, durationSeconds),
+				histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+				histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0, errors));
+	}
+	
+	private String option(String name, String defaultValue) {
+		return options.getOrDefault(name, defaultValue);
+	}
+
+}
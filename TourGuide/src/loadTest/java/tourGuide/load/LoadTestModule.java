@@ -0,0 +1,40 @@
+package tourGuide.load;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import gpsUtil.GpsUtil;
+import rewardCentral.RewardCentral;
+import tripPricer.TripPricer;
+
+/**
+ * Swaps the external libraries declared in TourGuideModule for their latency-injecting stand-ins.
+ */
+@Configuration
+public class LoadTestModule {
+	
+	@Bean
+	public static BeanPostProcessor getStandInPostProcessor(
+			@Value("${loadtest.latency.gps-util:30-100}") String gpsUtilLatency,
+			@Value("${loadtest.latency.reward-central:1-1000}") String rewardCentralLatency,
+			@Value("${loadtest.latency.trip-pricer:50-200}") String tripPricerLatency) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if(bean instanceof GpsUtil && !(bean instanceof LatencyGpsUtil)) {
+					return new LatencyGpsUtil(Latency.parse(gpsUtilLatency));
+				}
+				if(bean instanceof RewardCentral && !(bean instanceof LatencyRewardCentral)) {
+					return new LatencyRewardCentral(Latency.parse(rewardCentralLatency));
+				}
+				if(bean instanceof TripPricer && !(bean instanceof LatencyTripPricer)) {
+					return new LatencyTripPricer(Latency.parse(tripPricerLatency));
+				}
+				return bean;
+			}
+		};
+	}
+
+}
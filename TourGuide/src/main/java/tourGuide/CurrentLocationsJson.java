@@ -0,0 +1,78 @@
+package tourGuide;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import com.jsoniter.output.JsonStream;
+
+import tourGuide.service.TourGuideService;
+
+/**
+ * Writes every user's last location as JSON straight from the last location store, in the form
+ * JsonStream.serialize gives to TourGuideService.getAllCurrentLocations, without a Location or an id String per user.
+ */
+class CurrentLocationsJson {
+	private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+	// A quoted user id and its location, as written by JsonStream
+	private static final int ENTRY_BYTES = 80;
+	
+	private CurrentLocationsJson() {
+	}
+	
+	static String write(TourGuideService tourGuideService) {
+		ByteArrayOutputStream json = new ByteArrayOutputStream(tourGuideService.getCurrentLocationCount() * ENTRY_BYTES + 2);
+		JsonStream stream = new JsonStream(json, 4096);
+		byte[] userId = new byte[38];
+		userId[0] = '"';
+		userId[37] = '"';
+		boolean[] first = { true };
+		try {
+			stream.write('{');
+			tourGuideService.forEachCurrentLocation((userIdMostSigBits, userIdLeastSigBits, latitude, longitude, timeVisited) -> {
+				try {
+					if(!first[0]) {
+						stream.write(',');
+					}
+					first[0] = false;
+					writeUserId(userId, userIdMostSigBits, userIdLeastSigBits);
+					stream.write(userId, 0, userId.length);
+					stream.writeRaw(":{\"longitude\":");
+					stream.writeVal(longitude);
+					stream.writeRaw(",\"latitude\":");
+					stream.writeVal(latitude);
+					stream.write('}');
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			stream.write('}');
+			stream.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new String(json.toByteArray(), StandardCharsets.UTF_8);
+	}
+	
+	// Same digits as UUID.toString, between the quotes at 0 and 37
+	private static void writeUserId(byte[] userId, long mostSigBits, long leastSigBits) {
+		writeHex(userId, 1, mostSigBits >>> 32, 8);
+		userId[9] = '-';
+		writeHex(userId, 10, mostSigBits >>> 16, 4);
+		userId[14] = '-';
+		writeHex(userId, 15, mostSigBits, 4);
+		userId[19] = '-';
+		writeHex(userId, 20, leastSigBits >>> 48, 4);
+		userId[24] = '-';
+		writeHex(userId, 25, leastSigBits, 12);
+	}
+	
+	private static void writeHex(byte[] userId, int offset, long value, int digits) {
+		for(int i = digits - 1; i >= 0; i--) {
+			userId[offset + i] = HEX_DIGITS[(int) (value & 0xF)];
+			value >>>= 4;
+		}
+	}
+
+}
@@ -11,7 +11,6 @@ import com.jsoniter.output.JsonStream;
 
 import gpsUtil.location.VisitedLocation;
 import tourGuide.service.TourGuideService;
-import tourGuide.user.User;
 import tripPricer.Provider;
 
 @RestController
@@ -27,7 +26,7 @@ public class TourGuideController {
     
     @RequestMapping("/getLocation") 
     public String getLocation(@RequestParam String userName) {
-    	VisitedLocation visitedLocation = tourGuideService.getUserLocation(getUser(userName));
+    	VisitedLocation visitedLocation = tourGuideService.withUser(userName, tourGuideService::getUserLocation);
 		return JsonStream.serialize(visitedLocation.location);
     }
     
@@ -42,39 +41,36 @@ public class TourGuideController {
         //    Note: Attraction reward points can be gathered from RewardsCentral
     @RequestMapping("/getNearbyAttractions") 
     public String getNearbyAttractions(@RequestParam String userName) {
-    	VisitedLocation visitedLocation = tourGuideService.getUserLocation(getUser(userName));
+    	VisitedLocation visitedLocation = tourGuideService.withUser(userName, tourGuideService::getUserLocation);
     	return JsonStream.serialize(tourGuideService.getNearByAttractions(visitedLocation));
     }
     
+    @RequestMapping("/getUsersNearAttraction")
+    public String getUsersNearAttraction(@RequestParam String attractionName) {
+    	return JsonStream.serialize(tourGuideService.getUsersNearAttraction(attractionName));
+    }
+    
     @RequestMapping("/getRewards") 
     public String getRewards(@RequestParam String userName) {
-    	return JsonStream.serialize(tourGuideService.getUserRewards(getUser(userName)));
+    	return JsonStream.serialize(tourGuideService.withUser(userName, tourGuideService::getUserRewards));
     }
     
     @RequestMapping("/getAllCurrentLocations")
     public String getAllCurrentLocations() {
-    	// TODO: Get a list of every user's most recent location as JSON
-    	//- Note: does not use gpsUtil to query for their current location, 
-    	//        but rather gathers the user's current location from their stored location history.
-    	//
-    	// Return object should be the just a JSON mapping of userId to Locations similar to:
+    	// Gathers every user's most recent location from their stored location history, without using gpsUtil.
+    	// Returns a JSON mapping of userId to Locations similar to:
     	//     {
     	//        "019b04a9-067a-4c76-8817-ee75088c3822": {"longitude":-48.188821,"latitude":74.84371} 
     	//        ...
     	//     }
-    	
-    	return JsonStream.serialize("");
+    	return CurrentLocationsJson.write(tourGuideService);
     }
     
     @RequestMapping("/getTripDeals")
     public String getTripDeals(@RequestParam String userName) {
-    	List<Provider> providers = tourGuideService.getTripDeals(getUser(userName));
+    	List<Provider> providers = tourGuideService.withUser(userName, tourGuideService::getTripDeals);
     	return JsonStream.serialize(providers);
     }
-    
-    private User getUser(String userName) {
-    	return tourGuideService.getUser(userName);
-    }
    
 
 }
\ No newline at end of file
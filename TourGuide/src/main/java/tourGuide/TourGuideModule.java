@@ -1,11 +1,33 @@
 package tourGuide;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import gpsUtil.GpsUtil;
 import rewardCentral.RewardCentral;
+import tourGuide.client.ClientSettings;
+import tourGuide.client.GpsUtilClient;
+import tourGuide.client.RewardCentralClient;
+import tourGuide.client.TripPricerClient;
+import tourGuide.eventlog.EventLog;
+import tourGuide.eventlog.EventReplay;
+import tourGuide.execution.ExecutionSettings;
+import tourGuide.execution.VirtualThreadRequestHandling;
 import tourGuide.service.RewardsService;
+import tourGuide.store.AttractionProximityIndex;
+import tourGuide.store.LastLocationStore;
+import tourGuide.store.TieredUserStore;
+import tourGuide.store.UserStoreSettings;
+import tourGuide.tripdeals.TripDealsRefresher;
+import tourGuide.tripdeals.TripDealsSettings;
+import tourGuide.warmup.WarmupSettings;
+import tripPricer.TripPricer;
 
 @Configuration
 public class TourGuideModule {
@@ -17,7 +39,7 @@ public class TourGuideModule {
 	
 	@Bean
 	public RewardsService getRewardsService() {
-		return new RewardsService(getGpsUtil(), getRewardCentral());
+		return new RewardsService(getGpsUtilClient(), getRewardCentralClient());
 	}
 	
 	@Bean
@@ -25,4 +47,105 @@ public class TourGuideModule {
 		return new RewardCentral();
 	}
 	
+	@Bean
+	public TripPricer getTripPricer() {
+		return new TripPricer();
+	}
+	
+	@Bean
+	@ConfigurationProperties("tourguide.client.gps-util")
+	public ClientSettings getGpsUtilClientSettings() {
+		return new ClientSettings();
+	}
+	
+	@Bean
+	@ConfigurationProperties("tourguide.client.reward-central")
+	public ClientSettings getRewardCentralClientSettings() {
+		return new ClientSettings();
+	}
+	
+	@Bean
+	@ConfigurationProperties("tourguide.client.trip-pricer")
+	public ClientSettings getTripPricerClientSettings() {
+		return new ClientSettings();
+	}
+	
+	@Bean
+	public GpsUtilClient getGpsUtilClient() {
+		return new GpsUtilClient(getGpsUtil(), getGpsUtilClientSettings(), getExecutionSettings().getMode());
+	}
+	
+	@Bean
+	public RewardCentralClient getRewardCentralClient() {
+		return new RewardCentralClient(getRewardCentral(), getRewardCentralClientSettings(), getExecutionSettings().getMode());
+	}
+	
+	@Bean
+	public TripPricerClient getTripPricerClient() {
+		return new TripPricerClient(getTripPricer(), getTripPricerClientSettings(), getExecutionSettings().getMode());
+	}
+	
+	@Bean
+	@ConfigurationProperties("tourguide.execution")
+	public ExecutionSettings getExecutionSettings() {
+		return new ExecutionSettings();
+	}
+	
+	@Bean
+	@ConfigurationProperties("tourguide.user-store")
+	public UserStoreSettings getUserStoreSettings() {
+		return new UserStoreSettings();
+	}
+	
+	@Bean
+	public TieredUserStore getTieredUserStore() {
+		return new TieredUserStore(getUserStoreSettings());
+	}
+	
+	@Bean
+	public LastLocationStore getLastLocationStore(@Value("${tourguide.last-locations.initial-capacity:1024}") int initialCapacity) {
+		return new LastLocationStore(initialCapacity);
+	}
+	
+	@Bean
+	public AttractionProximityIndex getAttractionProximityIndex(@Value("${tourguide.proximity.radius-miles:10}") double radiusMiles) {
+		return new AttractionProximityIndex(getGpsUtilClient()::getAttractions, radiusMiles);
+	}
+	
+	@Bean
+	@ConfigurationProperties("tourguide.trip-deals")
+	public TripDealsSettings getTripDealsSettings() {
+		return new TripDealsSettings();
+	}
+	
+	@Bean
+	public TripDealsRefresher getTripDealsRefresher() {
+		return new TripDealsRefresher(getTripPricerClient(), getTieredUserStore(), getTripDealsSettings());
+	}
+	
+	@Bean
+	@ConfigurationProperties("tourguide.warmup")
+	public WarmupSettings getWarmupSettings() {
+		return new WarmupSettings();
+	}
+	
+	@Bean
+	@ConditionalOnProperty(name = "tourguide.event-log.enabled", havingValue = "true")
+	public EventLog getEventLog(@Value("${tourguide.event-log.directory}") String directory,
+			@Value("${tourguide.event-log.segment-size-bytes}") int segmentSize,
+			@Value("${tourguide.event-log.max-segments}") int maxSegments) throws IOException {
+		return new EventLog(Paths.get(directory), segmentSize, maxSegments);
+	}
+	
+	@Bean
+	@ConditionalOnProperty(name = "tourguide.event-log.enabled", havingValue = "true")
+	public EventReplay getEventReplay(EventLog eventLog, @Value("${tourguide.event-log.replay-parallelism}") int parallelism) {
+		return new EventReplay(eventLog, getGpsUtilClient()::getAttractions, parallelism);
+	}
+	
+	@Bean(destroyMethod = "shutdown")
+	public VirtualThreadRequestHandling getVirtualThreadRequestHandling() {
+		return new VirtualThreadRequestHandling(getExecutionSettings().getMode());
+	}
+	
 }
@@ -0,0 +1,78 @@
+package tourGuide.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Consecutive-failure circuit breaker.
+ * Opens after failureThreshold failures in a row, lets a single trial call through once
+ * openStateMillis have elapsed and closes again on the first success.
+ */
+public class CircuitBreaker {
+	
+	public enum State { CLOSED, OPEN, HALF_OPEN }
+	
+	private final int failureThreshold;
+	private final long openStateMillis;
+	private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	private final AtomicLong openedAt = new AtomicLong();
+	private final AtomicLong rejectedCalls = new AtomicLong();
+	
+	public CircuitBreaker(int failureThreshold, long openStateMillis) {
+		this.failureThreshold = failureThreshold;
+		this.openStateMillis = openStateMillis;
+	}
+	
+	public boolean tryAcquirePermission() {
+		switch(state.get()) {
+		case CLOSED:
+			return true;
+		case OPEN:
+			if(System.currentTimeMillis() - openedAt.get() >= openStateMillis
+					&& state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+				return true;
+			}
+			break;
+		case HALF_OPEN:
+			// A trial call is already in flight
+			break;
+		}
+		rejectedCalls.incrementAndGet();
+		return false;
+	}
+	
+	public void onSuccess() {
+		consecutiveFailures.set(0);
+		state.set(State.CLOSED);
+	}
+	
+	/**
+	 * Gives back a permission whose call was never made, without counting it as a failure
+	 */
+	public void onNotCalled() {
+		// Lets the next call be the trial instead
+		state.compareAndSet(State.HALF_OPEN, State.OPEN);
+	}
+	
+	public void onFailure() {
+		if(state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+			openedAt.set(System.currentTimeMillis());
+			state.set(State.OPEN);
+		}
+	}
+	
+	public State getState() {
+		return state.get();
+	}
+	
+	public int getConsecutiveFailures() {
+		return consecutiveFailures.get();
+	}
+	
+	public long getRejectedCalls() {
+		return rejectedCalls.get();
+	}
+
+}
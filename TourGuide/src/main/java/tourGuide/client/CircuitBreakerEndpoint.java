@@ -0,0 +1,35 @@
+package tourGuide.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the circuit breaker and bulkhead state of each external dependency at /actuator/circuitbreakers.
+ */
+@Component
+@Endpoint(id = "circuitbreakers")
+public class CircuitBreakerEndpoint {
+	private final GpsUtilClient gpsUtilClient;
+	private final RewardCentralClient rewardCentralClient;
+	private final TripPricerClient tripPricerClient;
+	
+	public CircuitBreakerEndpoint(GpsUtilClient gpsUtilClient, RewardCentralClient rewardCentralClient, TripPricerClient tripPricerClient) {
+		this.gpsUtilClient = gpsUtilClient;
+		this.rewardCentralClient = rewardCentralClient;
+		this.tripPricerClient = tripPricerClient;
+	}
+	
+	@ReadOperation
+	public Map<String, Object> circuitBreakers() {
+		Map<String, Object> circuitBreakers = new LinkedHashMap<>();
+		for(ClientGuard guard : new ClientGuard[] { gpsUtilClient.getGuard(), rewardCentralClient.getGuard(), tripPricerClient.getGuard() }) {
+			circuitBreakers.put(guard.getName(), guard.getStatus());
+		}
+		return circuitBreakers;
+	}
+
+}
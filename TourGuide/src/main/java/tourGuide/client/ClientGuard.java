@@ -0,0 +1,200 @@
+package tourGuide.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tourGuide.execution.ExecutionMode;
+import tourGuide.execution.ExecutionSupport;
+
+/**
+ * Runs the calls to one external dependency on its own bounded pool (bulkhead),
+ * with a timeout, a few jittered retries and a circuit breaker in front of it.
+ * When the call cannot complete the fallback is used instead.
+ * 
+ * In VIRTUAL execution mode each call gets its own virtual thread and the bulkhead
+ * is a semaphore of poolSize permits instead of a pool.
+ */
+public class ClientGuard {
+	private Logger logger = LoggerFactory.getLogger(ClientGuard.class);
+	private final String name;
+	private final ClientSettings settings;
+	private final ExecutorService executor;
+	private final Semaphore concurrencyLimit;
+	private final CircuitBreaker circuitBreaker;
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong bulkheadRejections = new AtomicLong();
+	private final AtomicLong fallbacks = new AtomicLong();
+	
+	public ClientGuard(String name, ClientSettings settings, ExecutionMode mode) {
+		this.name = name;
+		this.settings = settings;
+		this.circuitBreaker = new CircuitBreaker(settings.getFailureThreshold(), settings.getOpenStateMillis());
+		if(ExecutionSupport.effectiveMode(mode) == ExecutionMode.VIRTUAL) {
+			this.executor = ExecutionSupport.newTaskExecutor(ExecutionMode.VIRTUAL, name + "-client", settings.getPoolSize());
+			this.concurrencyLimit = new Semaphore(settings.getPoolSize());
+		} else {
+			ThreadPoolExecutor bulkhead = new ThreadPoolExecutor(settings.getPoolSize(), settings.getPoolSize(), 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(settings.getQueueCapacity()), ExecutionSupport.newPlatformThreadFactory(name + "-client"));
+			bulkhead.allowCoreThreadTimeOut(true);
+			this.executor = bulkhead;
+			this.concurrencyLimit = null;
+		}
+	}
+	
+	public ClientGuard(String name, ClientSettings settings) {
+		this(name, settings, ExecutionMode.PLATFORM);
+	}
+	
+	/**
+	 * Calls the dependency, falling back when the circuit is open, the bulkhead is full
+	 * or every attempt failed. A fallback returning null means no fallback is known.
+	 */
+	public <T> T call(Callable<T> call, Supplier<T> fallback) {
+		Exception lastFailure = null;
+		for(int attempt = 0; attempt <= settings.getMaxRetries(); attempt++) {
+			if(!circuitBreaker.tryAcquirePermission()) {
+				lastFailure = new IllegalStateException(name + " circuit is open");
+				break;
+			}
+			Future<T> future;
+			try {
+				future = submit(call);
+			} catch(RejectedExecutionException e) {
+				// A full bulkhead says nothing about the health of the dependency
+				bulkheadRejections.incrementAndGet();
+				circuitBreaker.onNotCalled();
+				lastFailure = e;
+				break;
+			} catch(InterruptedException e) {
+				circuitBreaker.onNotCalled();
+				Thread.currentThread().interrupt();
+				lastFailure = e;
+				break;
+			}
+			try {
+				T result = future.get(settings.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+				circuitBreaker.onSuccess();
+				return result;
+			} catch(TimeoutException e) {
+				future.cancel(true);
+				timeouts.incrementAndGet();
+				lastFailure = e;
+			} catch(ExecutionException e) {
+				lastFailure = e;
+			} catch(InterruptedException e) {
+				future.cancel(true);
+				circuitBreaker.onNotCalled();
+				Thread.currentThread().interrupt();
+				lastFailure = e;
+				break;
+			}
+			circuitBreaker.onFailure();
+			if(attempt < settings.getMaxRetries() && !backOff(attempt)) {
+				break;
+			}
+		}
+		return fallback(fallback, lastFailure);
+	}
+	
+	private <T> Future<T> submit(Callable<T> call) throws InterruptedException {
+		if(concurrencyLimit == null) {
+			return executor.submit(call);
+		}
+		if(!concurrencyLimit.tryAcquire(settings.getTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+			throw new RejectedExecutionException(name + " bulkhead is full");
+		}
+		FutureTask<T> task = new FutureTask<>(call);
+		try {
+			// The permit is held until the call returns, even if the caller timed out
+			executor.execute(() -> {
+				try {
+					task.run();
+				} finally {
+					concurrencyLimit.release();
+				}
+			});
+		} catch(RejectedExecutionException e) {
+			concurrencyLimit.release();
+			throw e;
+		}
+		return task;
+	}
+	
+	private boolean backOff(int attempt) {
+		long backoff = settings.getRetryBackoffMillis() << attempt;
+		long jittered = (long) (backoff * ThreadLocalRandom.current().nextDouble(0.5, 1.5));
+		try {
+			TimeUnit.MILLISECONDS.sleep(jittered);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+	
+	private <T> T fallback(Supplier<T> fallback, Exception failure) {
+		T result = fallback.get();
+		if(result == null) {
+			throw new DependencyUnavailableException(name, failure);
+		}
+		fallbacks.incrementAndGet();
+		logger.debug(name + " call failed, using fallback: " + failure);
+		return result;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Returns how many calls can run at once, further calls wait in the bulkhead
+	 */
+	public int getPoolSize() {
+		return settings.getPoolSize();
+	}
+	
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+	
+	public Map<String, Object> getStatus() {
+		Map<String, Object> status = new LinkedHashMap<>();
+		status.put("state", circuitBreaker.getState());
+		status.put("consecutiveFailures", circuitBreaker.getConsecutiveFailures());
+		status.put("rejectedByCircuit", circuitBreaker.getRejectedCalls());
+		status.put("rejectedByBulkhead", bulkheadRejections.get());
+		status.put("timeouts", timeouts.get());
+		status.put("fallbacks", fallbacks.get());
+		if(concurrencyLimit == null) {
+			ThreadPoolExecutor bulkhead = (ThreadPoolExecutor) executor;
+			status.put("activeCalls", bulkhead.getActiveCount());
+			status.put("queuedCalls", bulkhead.getQueue().size());
+		} else {
+			status.put("activeCalls", settings.getPoolSize() - concurrencyLimit.availablePermits());
+			status.put("queuedCalls", concurrencyLimit.getQueueLength());
+		}
+		return status;
+	}
+	
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,76 @@
+package tourGuide.client;
+
+/**
+ * Tuning of the resilience policy applied to one external dependency.
+ * Bound from the "tourguide.client.*" properties.
+ */
+public class ClientSettings {
+
+	private long timeoutMillis = 2000;
+	private int poolSize = 100;
+	private int queueCapacity = 1000;
+	private int maxRetries = 2;
+	private long retryBackoffMillis = 50;
+	private int failureThreshold = 20;
+	private long openStateMillis = 30000;
+	
+	public ClientSettings() {
+	}
+	
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	public void setTimeoutMillis(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	public long getRetryBackoffMillis() {
+		return retryBackoffMillis;
+	}
+
+	public void setRetryBackoffMillis(long retryBackoffMillis) {
+		this.retryBackoffMillis = retryBackoffMillis;
+	}
+
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	public void setFailureThreshold(int failureThreshold) {
+		this.failureThreshold = failureThreshold;
+	}
+
+	public long getOpenStateMillis() {
+		return openStateMillis;
+	}
+
+	public void setOpenStateMillis(long openStateMillis) {
+		this.openStateMillis = openStateMillis;
+	}
+
+}
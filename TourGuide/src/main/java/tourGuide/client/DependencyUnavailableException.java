@@ -0,0 +1,14 @@
+package tourGuide.client;
+
+/**
+ * Thrown when an external dependency could not answer and no fallback value is known.
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public DependencyUnavailableException(String dependency, Throwable cause) {
+		super(dependency + " is unavailable", cause);
+	}
+	
+}
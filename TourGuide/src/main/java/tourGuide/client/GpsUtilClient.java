@@ -0,0 +1,58 @@
+package tourGuide.client;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.execution.ExecutionMode;
+
+/**
+ * Guarded access to gpsUtil.
+ * Falls back to the last location the caller knows of for the user, and to the last attraction catalog.
+ */
+public class GpsUtilClient {
+	private final GpsUtil gpsUtil;
+	private final ClientGuard guard;
+	private final AtomicReference<List<Attraction>> lastKnownAttractions = new AtomicReference<>();
+	
+	public GpsUtilClient(GpsUtil gpsUtil, ClientSettings settings, ExecutionMode mode) {
+		this.gpsUtil = gpsUtil;
+		this.guard = new ClientGuard("gpsUtil", settings, mode);
+	}
+	
+	public GpsUtilClient(GpsUtil gpsUtil, ClientSettings settings) {
+		this(gpsUtil, settings, ExecutionMode.PLATFORM);
+	}
+	
+	public GpsUtilClient(GpsUtil gpsUtil) {
+		this(gpsUtil, new ClientSettings());
+	}
+	
+	/**
+	 * Returns the current location of the user, or lastVisitedLocation when gpsUtil cannot answer
+	 * @param lastVisitedLocation the last location recorded for the user, null if none
+	 */
+	public VisitedLocation getUserLocation(UUID userId, VisitedLocation lastVisitedLocation) {
+		return guard.call(() -> gpsUtil.getUserLocation(userId), () -> lastVisitedLocation);
+	}
+	
+	public List<Attraction> getAttractions() {
+		return guard.call(() -> {
+			List<Attraction> attractions = gpsUtil.getAttractions();
+			lastKnownAttractions.set(attractions);
+			return attractions;
+		}, lastKnownAttractions::get);
+	}
+	
+	public boolean wraps(GpsUtil gpsUtil) {
+		return this.gpsUtil == gpsUtil;
+	}
+	
+	public ClientGuard getGuard() {
+		return guard;
+	}
+
+}
@@ -0,0 +1,38 @@
+package tourGuide.client;
+
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+import rewardCentral.RewardCentral;
+import tourGuide.execution.ExecutionMode;
+
+/**
+ * Guarded access to RewardCentral.
+ * Has no fallback, points are specific to the user, so callers get a DependencyUnavailableException.
+ */
+public class RewardCentralClient {
+	private final RewardCentral rewardCentral;
+	private final ClientGuard guard;
+	
+	public RewardCentralClient(RewardCentral rewardCentral, ClientSettings settings, ExecutionMode mode) {
+		this.rewardCentral = rewardCentral;
+		this.guard = new ClientGuard("rewardCentral", settings, mode);
+	}
+	
+	public RewardCentralClient(RewardCentral rewardCentral, ClientSettings settings) {
+		this(rewardCentral, settings, ExecutionMode.PLATFORM);
+	}
+	
+	public RewardCentralClient(RewardCentral rewardCentral) {
+		this(rewardCentral, new ClientSettings());
+	}
+	
+	public int getAttractionRewardPoints(Attraction attraction, UUID userId) {
+		return guard.call(() -> rewardCentral.getAttractionRewardPoints(attraction.attractionId, userId), () -> null);
+	}
+	
+	public ClientGuard getGuard() {
+		return guard;
+	}
+
+}
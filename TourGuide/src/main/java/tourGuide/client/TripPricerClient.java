@@ -0,0 +1,39 @@
+package tourGuide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import tourGuide.execution.ExecutionMode;
+import tripPricer.Provider;
+import tripPricer.TripPricer;
+
+/**
+ * Guarded access to TripPricer.
+ * Has no fallback, the deals stored on the user are the last ones quoted to them.
+ */
+public class TripPricerClient {
+	private final TripPricer tripPricer;
+	private final ClientGuard guard;
+	
+	public TripPricerClient(TripPricer tripPricer, ClientSettings settings, ExecutionMode mode) {
+		this.tripPricer = tripPricer;
+		this.guard = new ClientGuard("tripPricer", settings, mode);
+	}
+	
+	public TripPricerClient(TripPricer tripPricer, ClientSettings settings) {
+		this(tripPricer, settings, ExecutionMode.PLATFORM);
+	}
+	
+	public TripPricerClient(TripPricer tripPricer) {
+		this(tripPricer, new ClientSettings());
+	}
+	
+	public List<Provider> getPrice(String apiKey, UUID userId, int adults, int children, int nightsStay, int rewardsPoints) {
+		return guard.call(() -> tripPricer.getPrice(apiKey, userId, adults, children, nightsStay, rewardsPoints), () -> null);
+	}
+	
+	public ClientGuard getGuard() {
+		return guard;
+	}
+
+}
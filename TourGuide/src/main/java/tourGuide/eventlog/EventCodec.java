@@ -0,0 +1,99 @@
+package tourGuide.eventlog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.UUID;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.user.UserReward;
+
+/**
+ * Binary encoding of the events.
+ * 
+ * Each record starts with a type byte followed by the user id (two longs):
+ *     VISITED_LOCATION: latitude, longitude (doubles), time visited (epoch millis)   - 41 bytes
+ *     USER_REWARD: attraction name (short length + UTF-8), latitude, longitude, time visited, points (int)
+ * A zero type byte marks the end of the written part of a segment.
+ */
+public class EventCodec {
+	static final byte END = 0;
+	static final byte VISITED_LOCATION = 1;
+	static final byte USER_REWARD = 2;
+	private static final int HEADER_SIZE = 1 + 16;
+	static final int VISITED_LOCATION_SIZE = HEADER_SIZE + 8 + 8 + 8;
+	
+	private EventCodec() {
+	}
+	
+	static int userRewardSize(byte[] attractionName) {
+		return HEADER_SIZE + 2 + attractionName.length + 8 + 8 + 8 + 4;
+	}
+	
+	static byte[] encodeName(String name) {
+		return name.getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * The type byte is written last so a reader never sees a partially written record
+	 */
+	static void encodeVisitedLocation(ByteBuffer buffer, VisitedLocation visitedLocation) {
+		int start = buffer.position();
+		buffer.put(END);
+		putUserId(buffer, visitedLocation.userId);
+		buffer.putDouble(visitedLocation.location.latitude);
+		buffer.putDouble(visitedLocation.location.longitude);
+		buffer.putLong(visitedLocation.timeVisited.getTime());
+		buffer.put(start, VISITED_LOCATION);
+	}
+	
+	static void encodeUserReward(ByteBuffer buffer, UUID userId, byte[] attractionName, UserReward userReward) {
+		int start = buffer.position();
+		buffer.put(END);
+		putUserId(buffer, userId);
+		buffer.putShort((short) attractionName.length);
+		buffer.put(attractionName);
+		buffer.putDouble(userReward.latitude);
+		buffer.putDouble(userReward.longitude);
+		buffer.putLong(userReward.timeVisited);
+		buffer.putInt(userReward.getRewardPoints());
+		buffer.put(start, USER_REWARD);
+	}
+	
+	/**
+	 * Decodes the records from the buffer position up to its limit or the end marker
+	 * @return the number of events decoded
+	 */
+	static long decode(ByteBuffer buffer, EventHandler handler) {
+		long events = 0;
+		while(buffer.remaining() >= HEADER_SIZE) {
+			byte type = buffer.get();
+			if(type == END) {
+				break;
+			}
+			UUID userId = new UUID(buffer.getLong(), buffer.getLong());
+			if(type == VISITED_LOCATION) {
+				double latitude = buffer.getDouble();
+				double longitude = buffer.getDouble();
+				Date timeVisited = new Date(buffer.getLong());
+				handler.onVisitedLocation(new VisitedLocation(userId, new Location(latitude, longitude), timeVisited));
+			} else if(type == USER_REWARD) {
+				byte[] name = new byte[buffer.getShort()];
+				buffer.get(name);
+				handler.onUserReward(userId, new String(name, StandardCharsets.UTF_8),
+						buffer.getDouble(), buffer.getDouble(), buffer.getLong(), buffer.getInt());
+			} else {
+				throw new IllegalStateException("Unknown event type " + type + " at " + (buffer.position() - HEADER_SIZE));
+			}
+			events++;
+		}
+		return events;
+	}
+	
+	private static void putUserId(ByteBuffer buffer, UUID userId) {
+		buffer.putLong(userId.getMostSignificantBits());
+		buffer.putLong(userId.getLeastSignificantBits());
+	}
+
+}
@@ -0,0 +1,16 @@
+package tourGuide.eventlog;
+
+import java.util.UUID;
+
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Receives the events read back from the event log, in the order they were appended within a segment.
+ */
+public interface EventHandler {
+	
+	void onVisitedLocation(VisitedLocation visitedLocation);
+	
+	void onUserReward(UUID userId, String attractionName, double latitude, double longitude, long timeVisited, int rewardPoints);
+
+}
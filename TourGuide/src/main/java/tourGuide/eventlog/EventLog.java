@@ -0,0 +1,181 @@
+package tourGuide.eventlog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gpsUtil.location.VisitedLocation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import tourGuide.user.UserReward;
+
+/**
+ * Append-only log of the tracked locations and granted rewards.
+ * 
+ * Events are written to fixed-size memory-mapped segment files, a new segment is started when
+ * the current one is full and each run of the application starts a new segment. Only the newest
+ * maxSegments segments are kept, older ones are deleted and no longer replayed.
+ */
+public class EventLog implements Closeable {
+	private Logger logger = LoggerFactory.getLogger(EventLog.class);
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private final Path directory;
+	private final int segmentSize;
+	private final int maxSegments;
+	private final Timer appendTimer = Metrics.timer("tourguide.eventlog.append");
+	private final Counter bytesWritten = Metrics.counter("tourguide.eventlog.written.bytes");
+	private final Counter segmentsRolled = Metrics.counter("tourguide.eventlog.segments.rolled");
+	private final Counter segmentsDeleted = Metrics.counter("tourguide.eventlog.segments.deleted");
+	private FileChannel channel;
+	private MappedByteBuffer segment;
+	private long segmentNumber;
+	private boolean closed = false;
+	
+	/**
+	 * Opens a log that keeps every segment
+	 */
+	public EventLog(Path directory, int segmentSize) throws IOException {
+		this(directory, segmentSize, Integer.MAX_VALUE);
+	}
+	
+	public EventLog(Path directory, int segmentSize, int maxSegments) throws IOException {
+		if(maxSegments < 1) {
+			throw new IllegalArgumentException("At least one segment must be kept, got " + maxSegments);
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.maxSegments = maxSegments;
+		Files.createDirectories(directory);
+		List<Path> segments = getSegments();
+		segmentNumber = segments.isEmpty() ? 0 : parseSegmentNumber(segments.get(segments.size() - 1));
+		openNextSegment();
+	}
+	
+	public void appendVisitedLocation(VisitedLocation visitedLocation) {
+		long start = System.nanoTime();
+		if(append(EventCodec.VISITED_LOCATION_SIZE, buffer -> EventCodec.encodeVisitedLocation(buffer, visitedLocation))) {
+			appendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+	
+	public void appendUserReward(UUID userId, UserReward userReward) {
+		long start = System.nanoTime();
+		byte[] attractionName = EventCodec.encodeName(userReward.attraction.attractionName);
+		if(append(EventCodec.userRewardSize(attractionName), buffer -> EventCodec.encodeUserReward(buffer, userId, attractionName, userReward))) {
+			appendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+	
+	private interface Encoder {
+		void encode(ByteBuffer buffer);
+	}
+	
+	private synchronized boolean append(int size, Encoder encoder) {
+		if(closed) {
+			return false;
+		}
+		// Keep one byte for the end marker
+		if(size + 1 > segmentSize) {
+			logger.warn("Event of " + size + " bytes does not fit in a segment of " + segmentSize + " bytes, skipped");
+			return false;
+		}
+		try {
+			if(segment.remaining() < size + 1) {
+				openNextSegment();
+			}
+			encoder.encode(segment);
+			bytesWritten.increment(size);
+			return true;
+		} catch (IOException | RuntimeException e) {
+			// Losing an event must not stop tracking
+			logger.error("Could not append to event log in " + directory, e);
+			return false;
+		}
+	}
+	
+	private void openNextSegment() throws IOException {
+		if(channel != null) {
+			segment.force();
+			channel.close();
+			segmentsRolled.increment();
+		}
+		segmentNumber++;
+		Path path = directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segmentNumber, SEGMENT_SUFFIX));
+		channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		segment = channel.map(MapMode.READ_WRITE, 0, segmentSize);
+		logger.debug("Event log writing to " + path);
+		deleteOldSegments();
+	}
+	
+	private void deleteOldSegments() {
+		try {
+			List<Path> segments = getSegments();
+			// The newest segment is the one being written
+			for(Path oldSegment : segments.subList(0, Math.max(0, segments.size() - maxSegments))) {
+				Files.deleteIfExists(oldSegment);
+				segmentsDeleted.increment();
+				logger.debug("Event log deleted " + oldSegment);
+			}
+		} catch (IOException e) {
+			// Retried on the next roll
+			logger.warn("Could not delete old event log segments in " + directory, e);
+		}
+	}
+	
+	/**
+	 * Returns the segment files, oldest first
+	 */
+	public List<Path> getSegments() throws IOException {
+		List<Path> segments = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			stream.forEach(segments::add);
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+	
+	/**
+	 * Makes the events appended so far visible to readers of the segment files
+	 */
+	public synchronized void flush() {
+		if(!closed) {
+			segment.force();
+		}
+	}
+	
+	public Path getDirectory() {
+		return directory;
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		if(!closed) {
+			closed = true;
+			segment.force();
+			channel.close();
+		}
+	}
+	
+	private static long parseSegmentNumber(Path segment) {
+		String fileName = segment.getFileName().toString();
+		return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+	}
+
+}
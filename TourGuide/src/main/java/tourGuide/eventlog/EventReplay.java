@@ -0,0 +1,182 @@
+package tourGuide.eventlog;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import tourGuide.execution.ExecutionMode;
+import tourGuide.execution.ExecutionSupport;
+import tourGuide.service.RewardsService;
+import tourGuide.user.User;
+import tourGuide.user.UserReward;
+
+/**
+ * Replays the event log to recompute rewards, typically with a RewardsService configured with new rules.
+ * Segments are decoded in parallel, then the rewards of the users are calculated in parallel.
+ * Logged rewards are restored as they were granted, only the attractions they miss are evaluated again.
+ */
+public class EventReplay {
+	private Logger logger = LoggerFactory.getLogger(EventReplay.class);
+	private final Timer replayTimer = Metrics.timer("tourguide.eventlog.replay");
+	private final Counter eventsReplayed = Metrics.counter("tourguide.eventlog.replayed.events");
+	private final EventLog eventLog;
+	private final Supplier<List<Attraction>> attractions;
+	private final int parallelism;
+	
+	public EventReplay(EventLog eventLog, Supplier<List<Attraction>> attractions, int parallelism) {
+		this.eventLog = eventLog;
+		this.attractions = attractions;
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * Rebuilds the location history and logged rewards of every user, then calculates the missing rewards with
+	 * the given service. Users are identified by id only, their user name is their id.
+	 * @throws IllegalArgumentException if the service appends to the replayed log
+	 */
+	public Map<UUID, User> replayRewards(RewardsService rewardsService) throws IOException, InterruptedException {
+		if(rewardsService.getEventLog() == eventLog) {
+			throw new IllegalArgumentException("Replay needs a RewardsService that does not append to the replayed log");
+		}
+		long start = System.nanoTime();
+		Map<String, Attraction> attractionsByName = new HashMap<>();
+		attractions.get().forEach(attraction -> attractionsByName.put(attraction.attractionName, attraction));
+		eventLog.flush();
+		List<Path> segments = eventLog.getSegments();
+		ExecutorService executorService = ExecutionSupport.newTaskExecutor(ExecutionMode.PLATFORM, "replay", parallelism);
+		try {
+			List<Future<SegmentEvents>> decodedSegments = new ArrayList<>();
+			for(Path segment : segments) {
+				decodedSegments.add(executorService.submit(() -> readEvents(segment)));
+			}
+			
+			// Merged in segment order to keep each history in the order it was recorded
+			Map<UUID, User> users = new LinkedHashMap<>();
+			long events = 0;
+			for(Future<SegmentEvents> decodedSegment : decodedSegments) {
+				SegmentEvents segmentEvents = get(decodedSegment);
+				events += segmentEvents.events;
+				segmentEvents.locations.forEach((userId, visitedLocations) -> {
+					visitedLocations.forEach(getUser(users, userId)::addToVisitedLocations);
+				});
+				for(LoggedReward reward : segmentEvents.rewards) {
+					getUser(users, reward.userId).addUserReward(reward.toUserReward(attractionsByName));
+				}
+			}
+			
+			List<Callable<Void>> rewardCalculations = new ArrayList<>();
+			for(User user : users.values()) {
+				rewardCalculations.add(() -> {
+					rewardsService.calculateRewards(user);
+					return null;
+				});
+			}
+			for(Future<Void> rewardCalculation : executorService.invokeAll(rewardCalculations)) {
+				get(rewardCalculation);
+			}
+			
+			long elapsed = System.nanoTime() - start;
+			replayTimer.record(elapsed, TimeUnit.NANOSECONDS);
+			eventsReplayed.increment(events);
+			logger.info("Replayed " + events + " events of " + users.size() + " users from " + segments.size() + " segments in "
+					+ TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms (" + (long) (events / Math.max(elapsed / 1e9, 1e-9)) + " events/s)");
+			return users;
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+	
+	private static User getUser(Map<UUID, User> users, UUID userId) {
+		return users.computeIfAbsent(userId, id -> new User(id, id.toString(), "", ""));
+	}
+	
+	private static class LoggedReward {
+		private final UUID userId;
+		private final String attractionName;
+		private final double latitude;
+		private final double longitude;
+		private final long timeVisited;
+		private final int rewardPoints;
+		
+		private LoggedReward(UUID userId, String attractionName, double latitude, double longitude, long timeVisited, int rewardPoints) {
+			this.userId = userId;
+			this.attractionName = attractionName;
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.timeVisited = timeVisited;
+			this.rewardPoints = rewardPoints;
+		}
+		
+		private UserReward toUserReward(Map<String, Attraction> attractionsByName) {
+			Attraction attraction = attractionsByName.get(attractionName);
+			if(attraction == null) {
+				// No longer in the catalog, only its name matters to the user
+				attraction = new Attraction(attractionName, "", "", latitude, longitude);
+			}
+			VisitedLocation visitedLocation = new VisitedLocation(userId, new Location(latitude, longitude), new Date(timeVisited));
+			return new UserReward(visitedLocation, attraction, rewardPoints);
+		}
+	}
+	
+	private static class SegmentEvents implements EventHandler {
+		private final Map<UUID, List<VisitedLocation>> locations = new HashMap<>();
+		private final List<LoggedReward> rewards = new ArrayList<>();
+		private long events;
+		
+		@Override
+		public void onVisitedLocation(VisitedLocation visitedLocation) {
+			locations.computeIfAbsent(visitedLocation.userId, id -> new ArrayList<>()).add(visitedLocation);
+		}
+		
+		@Override
+		public void onUserReward(UUID userId, String attractionName, double latitude, double longitude, long timeVisited, int rewardPoints) {
+			rewards.add(new LoggedReward(userId, attractionName, latitude, longitude, timeVisited, rewardPoints));
+		}
+	}
+	
+	private static SegmentEvents readEvents(Path segment) throws IOException {
+		SegmentEvents segmentEvents = new SegmentEvents();
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			segmentEvents.events = EventCodec.decode(buffer, segmentEvents);
+		}
+		return segmentEvents;
+	}
+	
+	private static <T> T get(Future<T> future) throws IOException, InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException("Event log replay failed", e.getCause());
+		}
+	}
+
+}
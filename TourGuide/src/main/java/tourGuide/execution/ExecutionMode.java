@@ -0,0 +1,10 @@
+package tourGuide.execution;
+
+/**
+ * How blocking work on the external libraries is scheduled.
+ * PLATFORM runs it on fixed pools of platform threads, VIRTUAL on one virtual thread per task (JDK 21+).
+ */
+public enum ExecutionMode {
+	PLATFORM,
+	VIRTUAL
+}
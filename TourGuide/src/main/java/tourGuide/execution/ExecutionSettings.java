@@ -0,0 +1,77 @@
+package tourGuide.execution;
+
+/**
+ * Execution mode, concurrency and pass SLA of the tracker.
+ * Bound from the "tourguide.execution.*" properties.
+ */
+public class ExecutionSettings {
+
+	private ExecutionMode mode = ExecutionMode.PLATFORM;
+	private int trackerConcurrency = 100;
+	private int trackerMaxConcurrency = 200;
+	// 0 derives the SLA from the tracker polling interval, see Tracker.getSlaMillis
+	private long trackerSlaMillis = 0;
+	private boolean trackerShedRewards = true;
+	private long trackerProgressIntervalMillis = 10000;
+	private int trackerHistorySize = 100;
+	
+	public ExecutionSettings() {
+	}
+	
+	public ExecutionMode getMode() {
+		return mode;
+	}
+
+	public void setMode(ExecutionMode mode) {
+		this.mode = mode;
+	}
+
+	public int getTrackerConcurrency() {
+		return trackerConcurrency;
+	}
+
+	public void setTrackerConcurrency(int trackerConcurrency) {
+		this.trackerConcurrency = trackerConcurrency;
+	}
+
+	public int getTrackerMaxConcurrency() {
+		return trackerMaxConcurrency;
+	}
+
+	public void setTrackerMaxConcurrency(int trackerMaxConcurrency) {
+		this.trackerMaxConcurrency = trackerMaxConcurrency;
+	}
+
+	public long getTrackerSlaMillis() {
+		return trackerSlaMillis;
+	}
+
+	public void setTrackerSlaMillis(long trackerSlaMillis) {
+		this.trackerSlaMillis = trackerSlaMillis;
+	}
+
+	public boolean isTrackerShedRewards() {
+		return trackerShedRewards;
+	}
+
+	public void setTrackerShedRewards(boolean trackerShedRewards) {
+		this.trackerShedRewards = trackerShedRewards;
+	}
+
+	public long getTrackerProgressIntervalMillis() {
+		return trackerProgressIntervalMillis;
+	}
+
+	public void setTrackerProgressIntervalMillis(long trackerProgressIntervalMillis) {
+		this.trackerProgressIntervalMillis = trackerProgressIntervalMillis;
+	}
+
+	public int getTrackerHistorySize() {
+		return trackerHistorySize;
+	}
+
+	public void setTrackerHistorySize(int trackerHistorySize) {
+		this.trackerHistorySize = trackerHistorySize;
+	}
+
+}
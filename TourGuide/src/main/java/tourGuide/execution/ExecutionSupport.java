@@ -0,0 +1,84 @@
+package tourGuide.execution;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the executors for the configured execution mode.
+ * The project still compiles for Java 8, so virtual threads are looked up reflectively
+ * and the platform mode is used when the running JDK does not provide them.
+ */
+public class ExecutionSupport {
+	private static Logger logger = LoggerFactory.getLogger(ExecutionSupport.class);
+	private static final boolean virtualThreadSupported = lookUpVirtualThreads();
+	private static final AtomicBoolean platformFallbackLogged = new AtomicBoolean();
+	
+	private ExecutionSupport() {
+	}
+	
+	public static boolean isVirtualThreadSupported() {
+		return virtualThreadSupported;
+	}
+	
+	public static ExecutionMode effectiveMode(ExecutionMode mode) {
+		if(mode == ExecutionMode.VIRTUAL && !virtualThreadSupported) {
+			// Resolved for every executor built, reported once
+			if(platformFallbackLogged.compareAndSet(false, true)) {
+				logger.warn("Virtual threads need JDK 21 or later, running in PLATFORM mode on Java " + System.getProperty("java.version"));
+			}
+			return ExecutionMode.PLATFORM;
+		}
+		return mode;
+	}
+	
+	/**
+	 * Returns an executor starting a virtual thread per task in VIRTUAL mode,
+	 * or a fixed pool of platformThreads daemon threads otherwise.
+	 */
+	public static ExecutorService newTaskExecutor(ExecutionMode mode, String name, int platformThreads) {
+		if(effectiveMode(mode) == ExecutionMode.VIRTUAL) {
+			return newVirtualThreadPerTaskExecutor(name);
+		}
+		return Executors.newFixedThreadPool(platformThreads, newPlatformThreadFactory(name));
+	}
+	
+	private static ExecutorService newVirtualThreadPerTaskExecutor(String name) {
+		try {
+			// Thread.ofVirtual().name(name + "-", 1).factory()
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder$OfVirtual");
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+			ThreadFactory threadFactory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+			Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Could not create virtual thread executor", e);
+		}
+	}
+	
+	public static ThreadFactory newPlatformThreadFactory(String name) {
+		AtomicInteger threadCount = new AtomicInteger();
+		return r -> {
+			Thread thread = new Thread(r, name + "-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+	
+	private static boolean lookUpVirtualThreads() {
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,40 @@
+package tourGuide.execution;
+
+import java.util.concurrent.ExecutorService;
+
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+
+/**
+ * Serves HTTP requests on virtual threads in VIRTUAL mode, leaves Tomcat's pool otherwise.
+ * The executor is shut down with the application context.
+ */
+public class VirtualThreadRequestHandling implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+	private final ExecutionMode mode;
+	private volatile ExecutorService executor;
+	
+	public VirtualThreadRequestHandling(ExecutionMode mode) {
+		this.mode = mode;
+	}
+	
+	@Override
+	public void customize(TomcatServletWebServerFactory factory) {
+		if(ExecutionSupport.effectiveMode(mode) != ExecutionMode.VIRTUAL) {
+			return;
+		}
+		factory.addConnectorCustomizers(connector -> {
+			if(connector.getProtocolHandler() instanceof AbstractProtocol) {
+				executor = ExecutionSupport.newTaskExecutor(ExecutionMode.VIRTUAL, "http", 0);
+				((AbstractProtocol<?>) connector.getProtocolHandler()).setExecutor(executor);
+			}
+		});
+	}
+	
+	public void shutdown() {
+		if(executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,12 @@
+package tourGuide.helper;
+
+/**
+ * Units shared by the distance computations, in RewardsService and AttractionProximityIndex
+ */
+public class Distances {
+
+	public static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+	
+	private Distances() {
+	}
+}
@@ -1,7 +1,11 @@
 package tourGuide.service;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import gpsUtil.GpsUtil;
@@ -9,23 +13,34 @@ import gpsUtil.location.Attraction;
 import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import tourGuide.client.DependencyUnavailableException;
+import tourGuide.client.GpsUtilClient;
+import tourGuide.client.RewardCentralClient;
+import tourGuide.eventlog.EventLog;
+import tourGuide.helper.Distances;
 import tourGuide.user.User;
 import tourGuide.user.UserReward;
 
 @Service
 public class RewardsService {
-    private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+	private Logger logger = LoggerFactory.getLogger(RewardsService.class);
 
 	// proximity in miles
     private int defaultProximityBuffer = 10;
 	private int proximityBuffer = defaultProximityBuffer;
 	private int attractionProximityRange = 200;
-	private final GpsUtil gpsUtil;
-	private final RewardCentral rewardsCentral;
+	private final GpsUtilClient gpsUtil;
+	private final RewardCentralClient rewardsCentral;
+	private EventLog eventLog;
+	
+	@Autowired
+	public RewardsService(GpsUtilClient gpsUtilClient, RewardCentralClient rewardCentralClient) {
+		this.gpsUtil = gpsUtilClient;
+		this.rewardsCentral = rewardCentralClient;
+	}
 	
 	public RewardsService(GpsUtil gpsUtil, RewardCentral rewardCentral) {
-		this.gpsUtil = gpsUtil;
-		this.rewardsCentral = rewardCentral;
+		this(new GpsUtilClient(gpsUtil), new RewardCentralClient(rewardCentral));
 	}
 	
 	public void setProximityBuffer(int proximityBuffer) {
@@ -36,16 +51,43 @@ public class RewardsService {
 		proximityBuffer = defaultProximityBuffer;
 	}
 	
+	@Autowired(required = false)
+	public void setEventLog(EventLog eventLog) {
+		this.eventLog = eventLog;
+	}
+	
+	public EventLog getEventLog() {
+		return eventLog;
+	}
+	
+	public GpsUtilClient getGpsUtilClient() {
+		return gpsUtil;
+	}
+	
 	public void calculateRewards(User user) {
-		List<VisitedLocation> userLocations = user.getVisitedLocations();
+		// One snapshot for the whole evaluation, the tracker may record a new location meanwhile
+		List<VisitedLocation> userLocations = new ArrayList<>(user.getVisitedLocations());
 		List<Attraction> attractions = gpsUtil.getAttractions();
 		
-		for(VisitedLocation visitedLocation : userLocations) {
-			for(Attraction attraction : attractions) {
-				if(user.getUserRewards().stream().filter(r -> r.attraction.attractionName.equals(attraction.attractionName)).count() == 0) {
-					if(nearAttraction(visitedLocation, attraction)) {
-						user.addUserReward(new UserReward(visitedLocation, attraction, getRewardPoints(attraction, user)));
+		for(Attraction attraction : attractions) {
+			if(user.hasUserReward(attraction)) {
+				continue;
+			}
+			for(VisitedLocation visitedLocation : userLocations) {
+				if(nearAttraction(visitedLocation, attraction)) {
+					int rewardPoints;
+					try {
+						rewardPoints = getRewardPoints(attraction, user);
+					} catch (DependencyUnavailableException e) {
+						// Nothing is granted, the next evaluation of the user retries
+						logger.debug("Rewards of " + user.getUserName() + " postponed: " + e.getMessage());
+						return;
+					}
+					UserReward userReward = new UserReward(visitedLocation, attraction, rewardPoints);
+					if(user.addUserReward(userReward) && eventLog != null) {
+						eventLog.appendUserReward(user.getUserId(), userReward);
 					}
+					break;
 				}
 			}
 		}
@@ -60,7 +102,7 @@ public class RewardsService {
 	}
 	
 	private int getRewardPoints(Attraction attraction, User user) {
-		return rewardsCentral.getAttractionRewardPoints(attraction.attractionId, user.getUserId());
+		return rewardsCentral.getAttractionRewardPoints(attraction, user.getUserId());
 	}
 	
 	public double getDistance(Location loc1, Location loc2) {
@@ -73,7 +115,7 @@ public class RewardsService {
                                + Math.cos(lat1) * Math.cos(lat2) * Math.cos(lon1 - lon2));
 
         double nauticalMiles = 60 * Math.toDegrees(angle);
-        double statuteMiles = STATUTE_MILES_PER_NAUTICAL_MILE * nauticalMiles;
+        double statuteMiles = Distances.STATUTE_MILES_PER_NAUTICAL_MILE * nauticalMiles;
         return statuteMiles;
 	}
 
@@ -4,24 +4,41 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
 import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
+import tourGuide.client.GpsUtilClient;
+import tourGuide.client.TripPricerClient;
+import tourGuide.eventlog.EventLog;
+import tourGuide.execution.ExecutionSettings;
 import tourGuide.helper.InternalTestHelper;
+import tourGuide.store.AttractionProximityIndex;
+import tourGuide.store.LastLocationStore;
+import tourGuide.store.LastLocationStore.LocationVisitor;
+import tourGuide.store.TieredUserStore;
+import tourGuide.store.UserStoreSettings;
 import tourGuide.tracker.Tracker;
+import tourGuide.tripdeals.TripDealsRefresher;
+import tourGuide.tripdeals.TripDealsSettings;
 import tourGuide.user.User;
 import tourGuide.user.UserReward;
 import tripPricer.Provider;
@@ -30,15 +47,30 @@ import tripPricer.TripPricer;
 @Service
 public class TourGuideService {
 	private Logger logger = LoggerFactory.getLogger(TourGuideService.class);
-	private final GpsUtil gpsUtil;
+	private final GpsUtilClient gpsUtil;
 	private final RewardsService rewardsService;
-	private final TripPricer tripPricer = new TripPricer();
+	private final TripDealsRefresher tripDeals;
+	// Database connection will be used for external users, but for testing purposes internal users are provided and stored in memory
+	private final TieredUserStore userStore;
+	private final LastLocationStore lastLocations;
+	private final AttractionProximityIndex proximityIndex;
 	public final Tracker tracker;
+	// Concurrent lookups of the same user share a single gpsUtil call
+	private final Map<UUID, CompletableFuture<VisitedLocation>> inFlightLocations = new ConcurrentHashMap<>();
+	private long locationFreshnessMillis = 0;
+	private EventLog eventLog;
 	boolean testMode = true;
 	
-	public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService) {
-		this.gpsUtil = gpsUtil;
+	@Autowired
+	public TourGuideService(GpsUtilClient gpsUtilClient, RewardsService rewardsService, TripDealsRefresher tripDealsRefresher,
+			ExecutionSettings executionSettings, TieredUserStore userStore, LastLocationStore lastLocations,
+			AttractionProximityIndex proximityIndex) {
+		this.gpsUtil = gpsUtilClient;
 		this.rewardsService = rewardsService;
+		this.tripDeals = tripDealsRefresher;
+		this.userStore = userStore;
+		this.lastLocations = lastLocations;
+		this.proximityIndex = proximityIndex;
 		
 		if(testMode) {
 			logger.info("TestMode enabled");
@@ -46,50 +78,184 @@ public class TourGuideService {
 			initializeInternalUsers();
 			logger.debug("Finished initializing users");
 		}
-		tracker = new Tracker(this);
+		tracker = new Tracker(this, executionSettings, gpsUtilClient.getGuard().getPoolSize());
 		addShutDownHook();
 	}
 	
+	/**
+	 * Starts tracking right away, the application context starts it once warmed up.
+	 * Shares the gpsUtil client of the rewards service when it wraps the same gpsUtil.
+	 */
+	public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService) {
+		this(rewardsService.getGpsUtilClient().wraps(gpsUtil) ? rewardsService.getGpsUtilClient() : new GpsUtilClient(gpsUtil), rewardsService);
+		tracker.startTracking(0);
+	}
+	
+	private TourGuideService(GpsUtilClient gpsUtilClient, RewardsService rewardsService) {
+		this(gpsUtilClient, rewardsService, new TieredUserStore(new UserStoreSettings()));
+	}
+	
+	private TourGuideService(GpsUtilClient gpsUtilClient, RewardsService rewardsService, TieredUserStore userStore) {
+		this(gpsUtilClient, rewardsService, new TripDealsRefresher(new TripPricerClient(new TripPricer()), userStore, new TripDealsSettings()),
+				new ExecutionSettings(), userStore, new LastLocationStore(), new AttractionProximityIndex(gpsUtilClient::getAttractions));
+	}
+	
 	public List<UserReward> getUserRewards(User user) {
 		return user.getUserRewards();
 	}
 	
+	/**
+	 * Sets how long a recorded location is served from memory, 0 to always serve the last recorded location
+	 */
+	@Autowired
+	public void setLocationFreshness(@Value("${tourguide.location.freshness-millis:0}") long locationFreshnessMillis) {
+		this.locationFreshnessMillis = locationFreshnessMillis;
+	}
+	
+	@Autowired(required = false)
+	public void setEventLog(EventLog eventLog) {
+		this.eventLog = eventLog;
+	}
+	
 	public VisitedLocation getUserLocation(User user) {
-		VisitedLocation visitedLocation = (user.getVisitedLocations().size() > 0) ?
-			user.getLastVisitedLocation() :
-			trackUserLocation(user);
-		return visitedLocation;
+		VisitedLocation freshLocation = getFreshLocation(user);
+		return freshLocation != null ? freshLocation : trackUserLocationOnce(user, true, true);
+	}
+	
+	private VisitedLocation getFreshLocation(User user) {
+		if(user.getVisitedLocations().size() > 0) {
+			VisitedLocation lastVisitedLocation = user.getLastVisitedLocation();
+			if(isFresh(lastVisitedLocation)) {
+				return lastVisitedLocation;
+			}
+		}
+		return null;
 	}
 	
-	public User getUser(String userName) {
-		return internalUserMap.get(userName);
+	private boolean isFresh(VisitedLocation visitedLocation) {
+		return locationFreshnessMillis <= 0
+				|| System.currentTimeMillis() - visitedLocation.timeVisited.getTime() <= locationFreshnessMillis;
+	}
+	
+	/**
+	 * Tracks the user unless a lookup or the tracker is already tracking them, then joins that flight,
+	 * so requests and the tracker never record the same user's location concurrently
+	 */
+	private VisitedLocation trackUserLocationOnce(User user, boolean calculateRewards, boolean unlessFresh) {
+		CompletableFuture<VisitedLocation> flight = new CompletableFuture<>();
+		CompletableFuture<VisitedLocation> inFlight = inFlightLocations.putIfAbsent(user.getUserId(), flight);
+		if(inFlight == null) {
+			try {
+				// A flight that ended just before this one was started may have recorded a fresh location
+				VisitedLocation freshLocation = unlessFresh ? getFreshLocation(user) : null;
+				flight.complete(freshLocation != null ? freshLocation : trackUserLocation(user, calculateRewards));
+			} catch(RuntimeException e) {
+				flight.completeExceptionally(e);
+			} finally {
+				inFlightLocations.remove(user.getUserId(), flight);
+			}
+			inFlight = flight;
+		}
+		try {
+			return inFlight.join();
+		} catch(CompletionException e) {
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+		}
 	}
 	
-	public List<User> getAllUsers() {
-		return internalUserMap.values().stream().collect(Collectors.toList());
+	/**
+	 * Applies the action to the user, kept on the heap until the action returns so its changes are not lost to a compaction.
+	 * The user must not be kept past the action, it is the only way to reach a user.
+	 * @return the result of the action, or null if there is no such user
+	 */
+	public <T> T withUser(String userName, Function<User, T> action) {
+		return userStore.use(userName, action);
+	}
+	
+	public List<String> getAllUserNames() {
+		return userStore.getUserNames();
 	}
 	
 	public void addUser(User user) {
-		if(!internalUserMap.containsKey(user.getUserName())) {
-			internalUserMap.put(user.getUserName(), user);
+		if(userStore.addIfAbsent(user) && !user.getVisitedLocations().isEmpty()) {
+			recordLastLocation(user.getLastVisitedLocation());
 		}
 	}
 	
+	/**
+	 * Returns the last recorded location of every user by user id, without asking gpsUtil.
+	 * Builds a Location and an id String per user, forEachCurrentLocation allocates nothing.
+	 */
+	public Map<String, Location> getAllCurrentLocations() {
+		Map<String, Location> currentLocations = new LinkedHashMap<>(lastLocations.size() * 2);
+		lastLocations.forEach((userIdMostSigBits, userIdLeastSigBits, latitude, longitude, timeVisited) ->
+			currentLocations.put(new UUID(userIdMostSigBits, userIdLeastSigBits).toString(), new Location(latitude, longitude)));
+		return currentLocations;
+	}
+	
+	/**
+	 * Visits the last recorded location of every user, without asking gpsUtil
+	 */
+	public void forEachCurrentLocation(LocationVisitor visitor) {
+		lastLocations.forEach(visitor);
+	}
+	
+	public int getCurrentLocationCount() {
+		return lastLocations.size();
+	}
+	
+	/**
+	 * Serves the stored deals while they still apply, see TripDealsRefresher
+	 */
 	public List<Provider> getTripDeals(User user) {
-		int cumulatativeRewardPoints = user.getUserRewards().stream().mapToInt(i -> i.getRewardPoints()).sum();
-		List<Provider> providers = tripPricer.getPrice(tripPricerApiKey, user.getUserId(), user.getUserPreferences().getNumberOfAdults(), 
-				user.getUserPreferences().getNumberOfChildren(), user.getUserPreferences().getTripDuration(), cumulatativeRewardPoints);
-		user.setTripDeals(providers);
-		return providers;
+		return tripDeals.getTripDeals(user);
 	}
 	
 	public VisitedLocation trackUserLocation(User user) {
-		VisitedLocation visitedLocation = gpsUtil.getUserLocation(user.getUserId());
-		user.addToVisitedLocations(visitedLocation);
-		rewardsService.calculateRewards(user);
+		return trackUserLocation(user, true);
+	}
+	
+	/**
+	 * Records the user's location, and unless calculateRewards is false its new rewards.
+	 * Skipped rewards are granted on a later call, as all visited locations are evaluated.
+	 */
+	public VisitedLocation trackUserLocation(User user, boolean calculateRewards) {
+		VisitedLocation lastVisitedLocation = user.getVisitedLocations().isEmpty() ? null : user.getLastVisitedLocation();
+		VisitedLocation visitedLocation = gpsUtil.getUserLocation(user.getUserId(), lastVisitedLocation);
+		if(visitedLocation != lastVisitedLocation) {
+			// gpsUtil answered, a fallback to the last known location is not a new visit
+			user.addToVisitedLocations(visitedLocation);
+			recordLastLocation(visitedLocation);
+			if(eventLog != null) {
+				eventLog.appendVisitedLocation(visitedLocation);
+			}
+			if(calculateRewards) {
+				rewardsService.calculateRewards(user);
+				tripDeals.rewardsChanged(user);
+			}
+		}
 		return visitedLocation;
 	}
+	
+	private void recordLastLocation(VisitedLocation visitedLocation) {
+		lastLocations.update(visitedLocation);
+		proximityIndex.update(visitedLocation);
+	}
+	
+	/**
+	 * Tracks the user without keeping it on heap, unlike a lookup through withUser
+	 */
+	public void trackUserLocation(String userName, boolean calculateRewards) {
+		userStore.visit(userName, user -> trackUserLocationOnce(user, calculateRewards, false));
+	}
 
+	/**
+	 * Returns the ids of the users whose last location is near the attraction
+	 */
+	public List<String> getUsersNearAttraction(String attractionName) {
+		return proximityIndex.getUsersNear(attractionName).stream().map(UUID::toString).collect(Collectors.toList());
+	}
+	
 	public List<Attraction> getNearByAttractions(VisitedLocation visitedLocation) {
 		List<Attraction> nearbyAttractions = new ArrayList<>();
 		for(Attraction attraction : gpsUtil.getAttractions()) {
@@ -101,10 +267,19 @@ public class TourGuideService {
 		return nearbyAttractions;
 	}
 	
+	/**
+	 * Stops the tracker and the background threads of the user store and trip deals refresher
+	 */
+	public void close() {
+		tracker.stopTracking();
+		userStore.shutdown();
+		tripDeals.shutdown();
+	}
+	
 	private void addShutDownHook() {
 		Runtime.getRuntime().addShutdownHook(new Thread() { 
 		      public void run() {
-		        tracker.stopTracking();
+		        close();
 		      } 
 		    }); 
 	}
@@ -114,9 +289,6 @@ public class TourGuideService {
 	 * Methods Below: For Internal Testing
 	 * 
 	 **********************************************************************************/
-	private static final String tripPricerApiKey = "test-server-api-key";
-	// Database connection will be used for external users, but for testing purposes internal users are provided and stored in memory
-	private final Map<String, User> internalUserMap = new HashMap<>();
 	private void initializeInternalUsers() {
 		IntStream.range(0, InternalTestHelper.getInternalUserNumber()).forEach(i -> {
 			String userName = "internalUser" + i;
@@ -125,7 +297,8 @@ public class TourGuideService {
 			User user = new User(UUID.randomUUID(), userName, phone, email);
 			generateUserLocationHistory(user);
 			
-			internalUserMap.put(userName, user);
+			userStore.addIfAbsent(user);
+			recordLastLocation(user.getLastVisitedLocation());
 		});
 		logger.debug("Created " + InternalTestHelper.getInternalUserNumber() + " internal test users.");
 	}
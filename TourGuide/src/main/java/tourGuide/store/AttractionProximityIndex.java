@@ -0,0 +1,134 @@
+package tourGuide.store;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import tourGuide.client.DependencyUnavailableException;
+import tourGuide.helper.Distances;
+
+/**
+ * Users currently within radiusMiles of each attraction, updated from each new location.
+ * 
+ * An update costs one distance test per attraction plus one set change per attraction the user
+ * entered or left. Attractions are known by name, the catalog is loaded once.
+ */
+public class AttractionProximityIndex {
+	private final Supplier<List<Attraction>> attractionCatalog;
+	// Two locations are within the radius when the cosine of their angular distance is at least this
+	private final double minCosine;
+	private final Map<UUID, BitSet> nearbyAttractions = new ConcurrentHashMap<>();
+	private final Timer updateTimer = Metrics.timer("tourguide.proximity.update");
+	private volatile Catalog catalog;
+	
+	private static class Catalog {
+		private final Map<String, Integer> ordinals = new HashMap<>();
+		private final double[] sinLatitudes;
+		private final double[] cosLatitudes;
+		private final double[] longitudes;
+		private final List<Set<UUID>> nearbyUsers = new ArrayList<>();
+		
+		private Catalog(List<Attraction> attractions) {
+			sinLatitudes = new double[attractions.size()];
+			cosLatitudes = new double[attractions.size()];
+			longitudes = new double[attractions.size()];
+			for(int i = 0; i < attractions.size(); i++) {
+				Attraction attraction = attractions.get(i);
+				ordinals.put(attraction.attractionName, i);
+				sinLatitudes[i] = Math.sin(Math.toRadians(attraction.latitude));
+				cosLatitudes[i] = Math.cos(Math.toRadians(attraction.latitude));
+				longitudes[i] = Math.toRadians(attraction.longitude);
+				nearbyUsers.add(ConcurrentHashMap.newKeySet());
+			}
+		}
+	}
+	
+	public AttractionProximityIndex(Supplier<List<Attraction>> attractionCatalog, double radiusMiles) {
+		this.attractionCatalog = attractionCatalog;
+		this.minCosine = Math.cos(Math.toRadians(radiusMiles / Distances.STATUTE_MILES_PER_NAUTICAL_MILE / 60));
+	}
+	
+	public AttractionProximityIndex(Supplier<List<Attraction>> attractionCatalog) {
+		this(attractionCatalog, 10);
+	}
+	
+	/**
+	 * Moves the user in and out of the attractions it is now near to
+	 */
+	public void update(VisitedLocation visitedLocation) {
+		Catalog catalog = getCatalog();
+		if(catalog == null) {
+			return;
+		}
+		long start = System.nanoTime();
+		double sinLatitude = Math.sin(Math.toRadians(visitedLocation.location.latitude));
+		double cosLatitude = Math.cos(Math.toRadians(visitedLocation.location.latitude));
+		double longitude = Math.toRadians(visitedLocation.location.longitude);
+		BitSet near = new BitSet(catalog.longitudes.length);
+		for(int i = 0; i < catalog.longitudes.length; i++) {
+			double cosine = sinLatitude * catalog.sinLatitudes[i]
+					+ cosLatitude * catalog.cosLatitudes[i] * Math.cos(longitude - catalog.longitudes[i]);
+			if(cosine >= minCosine) {
+				near.set(i);
+			}
+		}
+		UUID userId = visitedLocation.userId;
+		// Serializes the updates of a user so its sets follow its last location
+		nearbyAttractions.compute(userId, (id, previouslyNear) -> {
+			BitSet changed = (BitSet) near.clone();
+			if(previouslyNear != null) {
+				changed.xor(previouslyNear);
+			}
+			for(int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+				if(near.get(i)) {
+					catalog.nearbyUsers.get(i).add(id);
+				} else {
+					catalog.nearbyUsers.get(i).remove(id);
+				}
+			}
+			return near.isEmpty() ? null : near;
+		});
+		updateTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Returns the users near the attraction, empty for an unknown attraction
+	 */
+	public Set<UUID> getUsersNear(String attractionName) {
+		Catalog catalog = getCatalog();
+		Integer ordinal = catalog != null ? catalog.ordinals.get(attractionName) : null;
+		if(ordinal == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(catalog.nearbyUsers.get(ordinal));
+	}
+	
+	private Catalog getCatalog() {
+		if(catalog == null) {
+			synchronized(this) {
+				if(catalog == null) {
+					try {
+						catalog = new Catalog(attractionCatalog.get());
+					} catch (DependencyUnavailableException e) {
+						// Retried on the next update when gpsUtil has no catalog to give
+						return null;
+					}
+				}
+			}
+		}
+		return catalog;
+	}
+
+}
@@ -0,0 +1,195 @@
+package tourGuide.store;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Last known location of every user, kept off-heap in one column per field.
+ * 
+ * Each user gets a dense ordinal on its first location, so a scan over the whole population reads
+ * the columns sequentially and allocates nothing.
+ */
+public class LastLocationStore {
+	private static final int STRIPES = 64;
+	private final Map<UUID, Integer> ordinals = new ConcurrentHashMap<>();
+	// Guards the columns, growing them takes the write lock
+	private final ReadWriteLock columnsLock = new ReentrantReadWriteLock();
+	// Keeps the fields of a record consistent, a record is guarded by the stripe of its ordinal
+	private final Object[] stripes = new Object[STRIPES];
+	// Ordinals are assigned and the columns grown under the store monitor
+	private int capacity;
+	private volatile int size = 0;
+	private LongBuffer userIdMostSigBits;
+	private LongBuffer userIdLeastSigBits;
+	private DoubleBuffer latitudes;
+	private DoubleBuffer longitudes;
+	private LongBuffer timesVisited;
+	
+	/**
+	 * Receives the records of a scan, the user id is given as its two halves so a scan allocates nothing
+	 */
+	public interface LocationVisitor {
+		void visit(long userIdMostSigBits, long userIdLeastSigBits, double latitude, double longitude, long timeVisited);
+	}
+	
+	public LastLocationStore(int initialCapacity) {
+		for(int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Object();
+		}
+		allocate(Math.max(initialCapacity, 16));
+		Metrics.gauge("tourguide.lastlocations.users", ordinals, Map::size);
+	}
+	
+	public LastLocationStore() {
+		this(1024);
+	}
+	
+	/**
+	 * Records the location as the last one of its user
+	 */
+	public void update(VisitedLocation visitedLocation) {
+		int ordinal = ordinalOf(visitedLocation.userId);
+		columnsLock.readLock().lock();
+		try {
+			synchronized(stripes[ordinal % STRIPES]) {
+				latitudes.put(ordinal, visitedLocation.location.latitude);
+				longitudes.put(ordinal, visitedLocation.location.longitude);
+				timesVisited.put(ordinal, visitedLocation.timeVisited.getTime());
+			}
+		} finally {
+			columnsLock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Returns the last location of the user, or null if none was recorded
+	 */
+	public VisitedLocation get(UUID userId) {
+		Integer ordinal = ordinals.get(userId);
+		if(ordinal == null) {
+			return null;
+		}
+		columnsLock.readLock().lock();
+		try {
+			synchronized(stripes[ordinal % STRIPES]) {
+				return new VisitedLocation(userId, new Location(latitudes.get(ordinal), longitudes.get(ordinal)),
+						new Date(timesVisited.get(ordinal)));
+			}
+		} finally {
+			columnsLock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Visits the last location of every user in ordinal order.
+	 * Only the column references are taken under the lock, so a growth does not wait for the scan. Columns
+	 * replaced by a growth stay readable, a scan over them misses the locations recorded after the growth.
+	 */
+	public void forEach(LocationVisitor visitor) {
+		int count;
+		LongBuffer scannedMostSigBits;
+		LongBuffer scannedLeastSigBits;
+		DoubleBuffer scannedLatitudes;
+		DoubleBuffer scannedLongitudes;
+		LongBuffer scannedTimesVisited;
+		columnsLock.readLock().lock();
+		try {
+			count = size();
+			scannedMostSigBits = userIdMostSigBits;
+			scannedLeastSigBits = userIdLeastSigBits;
+			scannedLatitudes = latitudes;
+			scannedLongitudes = longitudes;
+			scannedTimesVisited = timesVisited;
+		} finally {
+			columnsLock.readLock().unlock();
+		}
+		for(int ordinal = 0; ordinal < count; ordinal++) {
+			double latitude;
+			double longitude;
+			long timeVisited;
+			synchronized(stripes[ordinal % STRIPES]) {
+				latitude = scannedLatitudes.get(ordinal);
+				longitude = scannedLongitudes.get(ordinal);
+				timeVisited = scannedTimesVisited.get(ordinal);
+			}
+			visitor.visit(scannedMostSigBits.get(ordinal), scannedLeastSigBits.get(ordinal), latitude, longitude, timeVisited);
+		}
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	private int ordinalOf(UUID userId) {
+		Integer ordinal = ordinals.get(userId);
+		if(ordinal != null) {
+			return ordinal;
+		}
+		synchronized(this) {
+			ordinal = ordinals.get(userId);
+			if(ordinal != null) {
+				return ordinal;
+			}
+			if(size == capacity) {
+				grow();
+			}
+			ordinal = size;
+			userIdMostSigBits.put(ordinal, userId.getMostSignificantBits());
+			userIdLeastSigBits.put(ordinal, userId.getLeastSignificantBits());
+			// Published before the location is written, a scan in between sees the epoch as time visited
+			size++;
+			ordinals.put(userId, ordinal);
+			return ordinal;
+		}
+	}
+	
+	private void grow() {
+		columnsLock.writeLock().lock();
+		try {
+			LongBuffer oldMostSigBits = userIdMostSigBits;
+			LongBuffer oldLeastSigBits = userIdLeastSigBits;
+			DoubleBuffer oldLatitudes = latitudes;
+			DoubleBuffer oldLongitudes = longitudes;
+			LongBuffer oldTimesVisited = timesVisited;
+			allocate(capacity * 2);
+			userIdMostSigBits.put(oldMostSigBits);
+			userIdLeastSigBits.put(oldLeastSigBits);
+			latitudes.put(oldLatitudes);
+			longitudes.put(oldLongitudes);
+			timesVisited.put(oldTimesVisited);
+			userIdMostSigBits.clear();
+			userIdLeastSigBits.clear();
+			latitudes.clear();
+			longitudes.clear();
+			timesVisited.clear();
+		} finally {
+			columnsLock.writeLock().unlock();
+		}
+	}
+	
+	private void allocate(int capacity) {
+		this.capacity = capacity;
+		userIdMostSigBits = column(capacity).asLongBuffer();
+		userIdLeastSigBits = column(capacity).asLongBuffer();
+		latitudes = column(capacity).asDoubleBuffer();
+		longitudes = column(capacity).asDoubleBuffer();
+		timesVisited = column(capacity).asLongBuffer();
+	}
+	
+	private static ByteBuffer column(int capacity) {
+		return ByteBuffer.allocateDirect(capacity * 8).order(ByteOrder.nativeOrder());
+	}
+
+}
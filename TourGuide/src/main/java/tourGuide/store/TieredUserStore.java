@@ -0,0 +1,267 @@
+package tourGuide.store;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import tourGuide.execution.ExecutionSupport;
+import tourGuide.user.User;
+
+/**
+ * Keeps recently used users as objects on the heap and compacts idle ones into off-heap buffers.
+ * 
+ * A compacted user is hydrated back when it is looked up. Users are compacted when they have not
+ * been looked up for idleMillis, or earlier, least recently used first, when there are more than
+ * maxHotUsers users on the heap. A user in use by use() or visit() is never compacted, changes
+ * to a user must go through them so they are not lost to a compaction.
+ */
+public class TieredUserStore {
+	private Logger logger = LoggerFactory.getLogger(TieredUserStore.class);
+	private final UserStoreSettings settings;
+	private final Map<String, HotUser> hotUsers = new ConcurrentHashMap<>();
+	private final Map<String, ByteBuffer> compactedUsers = new ConcurrentHashMap<>();
+	private final Set<String> userNames = ConcurrentHashMap.newKeySet();
+	private final AtomicLong compactedBytes = new AtomicLong();
+	private final ScheduledExecutorService evictionExecutor;
+	private final Counter hits = Metrics.counter("tourguide.userstore.lookups", "result", "hit");
+	private final Counter misses = Metrics.counter("tourguide.userstore.lookups", "result", "miss");
+	private final Counter compactions = Metrics.counter("tourguide.userstore.compactions");
+	private final Timer hydrationTimer = Metrics.timer("tourguide.userstore.hydration");
+	private volatile boolean compactedLimitReached = false;
+	
+	private static class HotUser {
+		private final User user;
+		private volatile long lastAccess;
+		private final AtomicInteger visitors = new AtomicInteger();
+		
+		private HotUser(User user, long lastAccess) {
+			this.user = user;
+			this.lastAccess = lastAccess;
+		}
+	}
+	
+	public TieredUserStore(UserStoreSettings settings) {
+		this.settings = settings;
+		this.evictionExecutor = Executors.newSingleThreadScheduledExecutor(ExecutionSupport.newPlatformThreadFactory("user-eviction"));
+		evictionExecutor.scheduleWithFixedDelay(this::evict, settings.getEvictionIntervalMillis(),
+				settings.getEvictionIntervalMillis(), TimeUnit.MILLISECONDS);
+		Metrics.gauge("tourguide.userstore.users", hotUsers, Map::size);
+		Metrics.gauge("tourguide.userstore.compacted.users", compactedUsers, Map::size);
+		Metrics.gauge("tourguide.userstore.compacted.bytes", compactedBytes, AtomicLong::get);
+		Metrics.gauge("tourguide.userstore.overflow.users", this, TieredUserStore::getOverflowUserCount);
+	}
+	
+	public boolean addIfAbsent(User user) {
+		// Put on the heap before the name is listed, so a lookup never finds a listed name without its user
+		boolean[] added = new boolean[1];
+		hotUsers.compute(user.getUserName(), (name, cached) -> {
+			if(cached != null || compactedUsers.containsKey(name)) {
+				return cached;
+			}
+			added[0] = true;
+			return new HotUser(user, System.currentTimeMillis());
+		});
+		if(added[0]) {
+			userNames.add(user.getUserName());
+		}
+		return added[0];
+	}
+	
+	/**
+	 * Returns the user, hydrating it if it was compacted, or null if there is no such user.
+	 * The user is not pinned and can be compacted once idle, use use() to change it.
+	 */
+	public User get(String userName) {
+		// Touched within the compute so a concurrent eviction sees the new access time
+		HotUser hotUser = hotUsers.computeIfPresent(userName, (name, cached) -> {
+			cached.lastAccess = System.currentTimeMillis();
+			return cached;
+		});
+		if(hotUser != null) {
+			hits.increment();
+			return hotUser.user;
+		}
+		hotUser = hydrate(userName);
+		return hotUser != null ? hotUser.user : null;
+	}
+	
+	/**
+	 * Applies the action to the user, which is kept on the heap until the action returns
+	 * @return the result of the action, or null if there is no such user
+	 */
+	public <T> T use(String userName, Function<User, T> action) {
+		return pin(userName, true, action);
+	}
+	
+	/**
+	 * Runs the action on the user without counting as a use, so a compacted user
+	 * visited by the tracker goes back to off-heap at the next eviction
+	 */
+	public void visit(String userName, Consumer<User> action) {
+		pin(userName, false, user -> {
+			action.accept(user);
+			return null;
+		});
+	}
+	
+	private <T> T pin(String userName, boolean touch, Function<User, T> action) {
+		HotUser hotUser = hotUsers.compute(userName, (name, cached) -> {
+			long now = System.currentTimeMillis();
+			HotUser pinned = cached != null ? cached : hydrateLocked(name, touch ? now : 0);
+			if(pinned != null) {
+				pinned.visitors.incrementAndGet();
+				if(touch) {
+					pinned.lastAccess = now;
+				}
+			}
+			return pinned;
+		});
+		if(hotUser == null) {
+			return null;
+		}
+		try {
+			return action.apply(hotUser.user);
+		} finally {
+			hotUser.visitors.decrementAndGet();
+		}
+	}
+	
+	public List<String> getUserNames() {
+		return new ArrayList<>(userNames);
+	}
+	
+	public int size() {
+		return userNames.size();
+	}
+	
+	public int getCompactedUserCount() {
+		return compactedUsers.size();
+	}
+	
+	/**
+	 * Returns how many users are kept on the heap over maxHotUsers because the off-heap limit is reached
+	 */
+	public int getOverflowUserCount() {
+		return compactedLimitReached ? Math.max(0, hotUsers.size() - settings.getMaxHotUsers()) : 0;
+	}
+	
+	private HotUser hydrate(String userName) {
+		if(!userNames.contains(userName)) {
+			return null;
+		}
+		return hotUsers.computeIfAbsent(userName, name -> hydrateLocked(name, System.currentTimeMillis()));
+	}
+	
+	// Called within a compute of hotUsers for this user name
+	private HotUser hydrateLocked(String userName, long lastAccess) {
+		ByteBuffer compacted = compactedUsers.remove(userName);
+		if(compacted == null) {
+			return null;
+		}
+		long start = System.nanoTime();
+		byte[] encoded = new byte[compacted.capacity()];
+		compacted.duplicate().get(encoded);
+		compactedBytes.addAndGet(-encoded.length);
+		User user = UserCodec.decode(encoded);
+		hydrationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		misses.increment();
+		return new HotUser(user, lastAccess);
+	}
+	
+	/**
+	 * Runs an eviction pass now, in addition to the scheduled ones
+	 */
+	public void evict() {
+		try {
+			long now = System.currentTimeMillis();
+			List<Map.Entry<String, HotUser>> candidates = new ArrayList<>();
+			for(Map.Entry<String, HotUser> entry : hotUsers.entrySet()) {
+				if(now - entry.getValue().lastAccess >= settings.getMinResidencyMillis()) {
+					candidates.add(entry);
+				}
+			}
+			candidates.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+			int evicted = 0;
+			for(Map.Entry<String, HotUser> candidate : candidates) {
+				boolean idle = now - candidate.getValue().lastAccess >= settings.getIdleMillis();
+				if(!idle && hotUsers.size() <= settings.getMaxHotUsers()) {
+					break;
+				}
+				if(compactedBytes.get() >= settings.getMaxCompactedBytes()) {
+					if(!compactedLimitReached) {
+						compactedLimitReached = true;
+						logger.warn("User store reached its off-heap limit of " + settings.getMaxCompactedBytes() + " bytes, "
+								+ hotUsers.size() + " users stay on the heap, see tourguide.userstore.overflow.users");
+					}
+					break;
+				}
+				try {
+					if(compact(candidate.getKey(), candidate.getValue().lastAccess)) {
+						evicted++;
+					}
+				} catch (OutOfMemoryError e) {
+					// Direct memory ran out before maxCompactedBytes, the user stays on the heap and the next pass retries
+					if(!compactedLimitReached) {
+						compactedLimitReached = true;
+						logger.warn("User store could not allocate off-heap memory after " + compactedBytes.get() + " bytes, "
+								+ hotUsers.size() + " users stay on the heap, see tourguide.userstore.overflow.users", e);
+					}
+					return;
+				}
+			}
+			if(compactedLimitReached && compactedBytes.get() < settings.getMaxCompactedBytes()) {
+				logger.info("User store is back under its off-heap limit");
+			}
+			compactedLimitReached = compactedBytes.get() >= settings.getMaxCompactedBytes();
+			if(evicted > 0) {
+				logger.debug("Compacted " + evicted + " users, " + hotUsers.size() + " left on heap");
+			}
+		} catch (RuntimeException e) {
+			// Keeps the eviction schedule alive
+			logger.error("User eviction failed", e);
+		}
+	}
+	
+	private boolean compact(String userName, long lastAccess) {
+		boolean[] compacted = new boolean[1];
+		hotUsers.computeIfPresent(userName, (name, hotUser) -> {
+			if(hotUser.visitors.get() > 0 || hotUser.lastAccess != lastAccess) {
+				return hotUser;
+			}
+			byte[] encoded = UserCodec.encode(hotUser.user);
+			ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.length);
+			buffer.put(encoded);
+			buffer.flip();
+			compactedUsers.put(name, buffer);
+			compactedBytes.addAndGet(encoded.length);
+			compacted[0] = true;
+			return null;
+		});
+		if(compacted[0]) {
+			compactions.increment();
+		}
+		return compacted[0];
+	}
+	
+	public void shutdown() {
+		evictionExecutor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,178 @@
+package tourGuide.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.javamoney.moneta.Money;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.user.TripDealsQuote;
+import tourGuide.user.User;
+import tourGuide.user.UserPreferences;
+import tourGuide.user.UserReward;
+import tripPricer.Provider;
+
+/**
+ * Compact binary form of a User, its location history, rewards, preferences and trip deals.
+ * Attractions are rebuilt from their name and coordinates, so they get a new attraction id.
+ */
+public class UserCodec {
+	
+	private UserCodec() {
+	}
+	
+	public static byte[] encode(User user) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			writeUuid(out, user.getUserId());
+			out.writeUTF(user.getUserName());
+			writeNullableUTF(out, user.getPhoneNumber());
+			writeNullableUTF(out, user.getEmailAddress());
+			out.writeLong(user.getLatestLocationTimestamp() == null ? -1 : user.getLatestLocationTimestamp().getTime());
+			
+			List<VisitedLocation> visitedLocations = new ArrayList<>(user.getVisitedLocations());
+			out.writeInt(visitedLocations.size());
+			for(VisitedLocation visitedLocation : visitedLocations) {
+				out.writeDouble(visitedLocation.location.latitude);
+				out.writeDouble(visitedLocation.location.longitude);
+				out.writeLong(visitedLocation.timeVisited.getTime());
+			}
+			
+			List<UserReward> userRewards = user.getUserRewards();
+			out.writeInt(userRewards.size());
+			for(UserReward userReward : userRewards) {
+				Attraction attraction = userReward.attraction;
+				out.writeUTF(attraction.attractionName);
+				out.writeUTF(attraction.city);
+				out.writeUTF(attraction.state);
+				out.writeDouble(attraction.latitude);
+				out.writeDouble(attraction.longitude);
+				out.writeDouble(userReward.latitude);
+				out.writeDouble(userReward.longitude);
+				out.writeLong(userReward.timeVisited);
+				out.writeInt(userReward.getRewardPoints());
+			}
+			
+			UserPreferences preferences = user.getUserPreferences();
+			out.writeInt(preferences.getAttractionProximity());
+			writeMoney(out, preferences.getLowerPricePoint());
+			writeMoney(out, preferences.getHighPricePoint());
+			out.writeInt(preferences.getTripDuration());
+			out.writeInt(preferences.getTicketQuantity());
+			out.writeInt(preferences.getNumberOfAdults());
+			out.writeInt(preferences.getNumberOfChildren());
+			
+			List<Provider> tripDeals = new ArrayList<>(user.getTripDeals());
+			out.writeInt(tripDeals.size());
+			for(Provider provider : tripDeals) {
+				writeUuid(out, provider.tripId);
+				out.writeUTF(provider.name);
+				out.writeDouble(provider.price);
+			}
+			TripDealsQuote tripDealsQuote = user.getTripDealsQuote();
+			out.writeBoolean(tripDealsQuote != null);
+			if(tripDealsQuote != null) {
+				out.writeInt(tripDealsQuote.numberOfAdults);
+				out.writeInt(tripDealsQuote.numberOfChildren);
+				out.writeInt(tripDealsQuote.tripDuration);
+				out.writeInt(tripDealsQuote.rewardPoints);
+				out.writeLong(tripDealsQuote.quotedAt);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+	
+	public static User decode(byte[] encoded) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+			UUID userId = readUuid(in);
+			User user = new User(userId, in.readUTF(), readNullableUTF(in), readNullableUTF(in));
+			long latestLocationTimestamp = in.readLong();
+			if(latestLocationTimestamp != -1) {
+				user.setLatestLocationTimestamp(new Date(latestLocationTimestamp));
+			}
+			
+			for(int i = in.readInt(); i > 0; i--) {
+				Location location = new Location(in.readDouble(), in.readDouble());
+				user.addToVisitedLocations(new VisitedLocation(userId, location, new Date(in.readLong())));
+			}
+			
+			for(int i = in.readInt(); i > 0; i--) {
+				String attractionName = in.readUTF();
+				String city = in.readUTF();
+				String state = in.readUTF();
+				double attractionLatitude = in.readDouble();
+				double attractionLongitude = in.readDouble();
+				Attraction attraction = new Attraction(attractionName, city, state, attractionLatitude, attractionLongitude);
+				Location location = new Location(in.readDouble(), in.readDouble());
+				VisitedLocation visitedLocation = new VisitedLocation(userId, location, new Date(in.readLong()));
+				user.addUserReward(new UserReward(visitedLocation, attraction, in.readInt()));
+			}
+			
+			UserPreferences preferences = new UserPreferences();
+			preferences.setAttractionProximity(in.readInt());
+			preferences.setLowerPricePoint(readMoney(in));
+			preferences.setHighPricePoint(readMoney(in));
+			preferences.setTripDuration(in.readInt());
+			preferences.setTicketQuantity(in.readInt());
+			preferences.setNumberOfAdults(in.readInt());
+			preferences.setNumberOfChildren(in.readInt());
+			user.setUserPreferences(preferences);
+			
+			List<Provider> tripDeals = new ArrayList<>();
+			for(int i = in.readInt(); i > 0; i--) {
+				tripDeals.add(new Provider(readUuid(in), in.readUTF(), in.readDouble()));
+			}
+			user.setTripDeals(tripDeals);
+			if(in.readBoolean()) {
+				user.setTripDealsQuote(new TripDealsQuote(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readLong()));
+			}
+			return user;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+		out.writeLong(uuid.getMostSignificantBits());
+		out.writeLong(uuid.getLeastSignificantBits());
+	}
+	
+	private static UUID readUuid(DataInputStream in) throws IOException {
+		return new UUID(in.readLong(), in.readLong());
+	}
+	
+	private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if(value != null) {
+			out.writeUTF(value);
+		}
+	}
+	
+	private static String readNullableUTF(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+	
+	private static void writeMoney(DataOutputStream out, Money money) throws IOException {
+		out.writeUTF(money.getCurrency().getCurrencyCode());
+		out.writeUTF(money.getNumberStripped().toPlainString());
+	}
+	
+	private static Money readMoney(DataInputStream in) throws IOException {
+		String currencyCode = in.readUTF();
+		return Money.of(new BigDecimal(in.readUTF()), currencyCode);
+	}
+
+}
@@ -0,0 +1,59 @@
+package tourGuide.store;
+
+/**
+ * Memory limits of the user store.
+ * Bound from the "tourguide.user-store.*" properties.
+ */
+public class UserStoreSettings {
+
+	private int maxHotUsers = 100000;
+	private long idleMillis = 600000;
+	private long maxCompactedBytes = 1L << 30;
+	private long evictionIntervalMillis = 10000;
+	// Lets the request that looked a user up with get() finish with it before it is compacted
+	private long minResidencyMillis = 1000;
+	
+	public UserStoreSettings() {
+	}
+	
+	public int getMaxHotUsers() {
+		return maxHotUsers;
+	}
+
+	public void setMaxHotUsers(int maxHotUsers) {
+		this.maxHotUsers = maxHotUsers;
+	}
+
+	public long getIdleMillis() {
+		return idleMillis;
+	}
+
+	public void setIdleMillis(long idleMillis) {
+		this.idleMillis = idleMillis;
+	}
+
+	public long getMaxCompactedBytes() {
+		return maxCompactedBytes;
+	}
+
+	public void setMaxCompactedBytes(long maxCompactedBytes) {
+		this.maxCompactedBytes = maxCompactedBytes;
+	}
+
+	public long getEvictionIntervalMillis() {
+		return evictionIntervalMillis;
+	}
+
+	public void setEvictionIntervalMillis(long evictionIntervalMillis) {
+		this.evictionIntervalMillis = evictionIntervalMillis;
+	}
+
+	public long getMinResidencyMillis() {
+		return minResidencyMillis;
+	}
+
+	public void setMinResidencyMillis(long minResidencyMillis) {
+		this.minResidencyMillis = minResidencyMillis;
+	}
+
+}
@@ -1,28 +1,80 @@
 package tourGuide.tracker;
 
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import tourGuide.client.DependencyUnavailableException;
+import tourGuide.execution.ExecutionSettings;
+import tourGuide.execution.ExecutionSupport;
 import tourGuide.service.TourGuideService;
-import tourGuide.user.User;
 
 public class Tracker extends Thread {
 	private Logger logger = LoggerFactory.getLogger(Tracker.class);
 	private static final long trackingPollingInterval = TimeUnit.MINUTES.toSeconds(5);
-	private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+	// A pass within it leaves every location at most four polling intervals old
+	private static final long defaultSlaMillis = TimeUnit.SECONDS.toMillis(trackingPollingInterval) * 3;
+	private final ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
+	private final ExecutorService trackingExecutor;
+	private final Semaphore trackingPermits;
 	private final TourGuideService tourGuideService;
+	private final ExecutionSettings executionSettings;
+	private final AtomicBoolean started = new AtomicBoolean();
+	private final int maxConcurrency;
+	// Kept across passes, raised when a pass is projected to miss the SLA and lowered after passes within it
+	private volatile int concurrency;
+	private volatile TrackerPass currentPass;
+	private final Deque<TrackerPass> passHistory = new ConcurrentLinkedDeque<>();
+	private final AtomicLong passCount = new AtomicLong();
+	private final Timer passTimer = Metrics.timer("tourguide.tracker.pass");
+	private final Counter trackedUsers = Metrics.counter("tourguide.tracker.users", "result", "tracked");
+	private final Counter failedUsers = Metrics.counter("tourguide.tracker.users", "result", "failed");
 	private boolean stop = false;
 
-	public Tracker(TourGuideService tourGuideService) {
+	/**
+	 * @param clientPoolSize how many gpsUtil calls can run at once, more tracking tasks would only wait in its bulkhead
+	 */
+	public Tracker(TourGuideService tourGuideService, ExecutionSettings executionSettings, int clientPoolSize) {
 		this.tourGuideService = tourGuideService;
-		
-		executorService.submit(this);
+		this.executionSettings = executionSettings;
+		this.maxConcurrency = Math.min(clientPoolSize,
+				Math.max(executionSettings.getTrackerConcurrency(), executionSettings.getTrackerMaxConcurrency()));
+		this.concurrency = getBaseConcurrency();
+		this.trackingExecutor = ExecutionSupport.newTaskExecutor(executionSettings.getMode(), "tracker", maxConcurrency);
+		this.trackingPermits = new Semaphore(concurrency);
+	}
+	
+	public Tracker(TourGuideService tourGuideService, ExecutionSettings executionSettings) {
+		this(tourGuideService, executionSettings, Integer.MAX_VALUE);
+	}
+	
+	public Tracker(TourGuideService tourGuideService) {
+		this(tourGuideService, new ExecutionSettings());
+	}
+	
+	/**
+	 * Starts tracking after the delay, once started further calls are ignored
+	 */
+	public void startTracking(long delayMillis) {
+		if(started.compareAndSet(false, true)) {
+			logger.debug("Tracker starting in " + delayMillis + " ms");
+			executorService.schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+		}
 	}
 	
 	/**
@@ -31,24 +83,136 @@ public class Tracker extends Thread {
 	public void stopTracking() {
 		stop = true;
 		executorService.shutdownNow();
+		trackingExecutor.shutdownNow();
+	}
+	
+	/**
+	 * Tracks the users concurrently and returns once all are tracked.
+	 * 
+	 * Progress is checked every trackerProgressIntervalMillis. When the pass is projected to last longer
+	 * than trackerSlaMillis, concurrency is doubled up to trackerMaxConcurrency, capped by the gpsUtil client
+	 * pool, then reward evaluation is left to the next pass. After a pass that would still have met the SLA
+	 * at half its concurrency, concurrency is halved back towards trackerConcurrency.
+	 */
+	public TrackerPass trackUsers(List<String> userNames) throws InterruptedException {
+		TrackerPass pass = new TrackerPass(passCount.incrementAndGet(), userNames.size(), concurrency);
+		currentPass = pass;
+		long progressInterval = executionSettings.getTrackerProgressIntervalMillis();
+		long nextCheck = System.currentTimeMillis() + progressInterval;
+		CountDownLatch remaining = new CountDownLatch(userNames.size());
+		for(String userName : userNames) {
+			while(!trackingPermits.tryAcquire(progressInterval, TimeUnit.MILLISECONDS)) {
+				checkProgress(pass);
+			}
+			if(System.currentTimeMillis() >= nextCheck) {
+				checkProgress(pass);
+				nextCheck = System.currentTimeMillis() + progressInterval;
+			}
+			boolean calculateRewards = !pass.isRewardsShed();
+			trackingExecutor.execute(() -> {
+				try {
+					tourGuideService.trackUserLocation(userName, calculateRewards);
+					pass.userTracked(calculateRewards);
+					trackedUsers.increment();
+				} catch (DependencyUnavailableException e) {
+					pass.userFailed();
+					failedUsers.increment();
+					logger.debug("Could not track user " + userName + ": " + e.getMessage());
+				} catch (RuntimeException e) {
+					pass.userFailed();
+					failedUsers.increment();
+					logger.warn("Failed to track user " + userName, e);
+				} finally {
+					trackingPermits.release();
+					remaining.countDown();
+				}
+			});
+		}
+		while(!remaining.await(progressInterval, TimeUnit.MILLISECONDS)) {
+			checkProgress(pass);
+		}
+		pass.finish();
+		lowerConcurrency(pass);
+		passTimer.record(pass.getElapsedMillis(), TimeUnit.MILLISECONDS);
+		passHistory.addLast(pass);
+		while(passHistory.size() > executionSettings.getTrackerHistorySize()) {
+			passHistory.pollFirst();
+		}
+		return pass;
+	}
+	
+	private void checkProgress(TrackerPass pass) {
+		long projectedMillis = pass.getProjectedMillis();
+		logger.debug("Tracker pass " + pass.toMap());
+		boolean late = projectedMillis == -1 ? pass.getElapsedMillis() > getSlaMillis() : projectedMillis > getSlaMillis();
+		if(!late) {
+			return;
+		}
+		// No projection before the first user is done, the pass is late by its elapsed time alone
+		String lateness = projectedMillis == -1 ? "already took " + pass.getElapsedMillis() : "projected to take " + projectedMillis;
+		if(concurrency < maxConcurrency) {
+			int added = Math.min(concurrency, maxConcurrency - concurrency);
+			concurrency += added;
+			trackingPermits.release(added);
+			pass.setConcurrency(concurrency);
+			logger.warn("Tracker pass " + lateness + " ms, over its SLA, concurrency raised to " + concurrency);
+		} else if(executionSettings.isTrackerShedRewards() && !pass.isRewardsShed()) {
+			pass.shedRewards();
+			logger.warn("Tracker pass " + lateness + " ms, over its SLA, rewards left to the next pass");
+		}
+	}
+	
+	// Called between passes, when every permit is back
+	private void lowerConcurrency(TrackerPass pass) {
+		int lowered = Math.max(getBaseConcurrency(), concurrency / 2);
+		if(lowered < concurrency && pass.getElapsedMillis() * concurrency / lowered <= getSlaMillis()
+				&& trackingPermits.tryAcquire(concurrency - lowered)) {
+			concurrency = lowered;
+			logger.info("Tracker pass took " + pass.getElapsedMillis() + " ms, within its SLA, concurrency lowered to " + concurrency);
+		}
+	}
+	
+	/**
+	 * Returns trackerSlaMillis, or when it is not set three polling intervals
+	 */
+	public long getSlaMillis() {
+		return executionSettings.getTrackerSlaMillis() > 0 ? executionSettings.getTrackerSlaMillis() : defaultSlaMillis;
+	}
+	
+	private int getBaseConcurrency() {
+		return Math.min(executionSettings.getTrackerConcurrency(), maxConcurrency);
+	}
+	
+	public TrackerPass getCurrentPass() {
+		return currentPass;
+	}
+	
+	public List<TrackerPass> getPassHistory() {
+		return new ArrayList<>(passHistory);
+	}
+	
+	public int getConcurrency() {
+		return concurrency;
 	}
 	
 	@Override
 	public void run() {
-		StopWatch stopWatch = new StopWatch();
 		while(true) {
 			if(Thread.currentThread().isInterrupted() || stop) {
 				logger.debug("Tracker stopping");
 				break;
 			}
 			
-			List<User> users = tourGuideService.getAllUsers();
-			logger.debug("Begin Tracker. Tracking " + users.size() + " users.");
-			stopWatch.start();
-			users.forEach(u -> tourGuideService.trackUserLocation(u));
-			stopWatch.stop();
-			logger.debug("Tracker Time Elapsed: " + TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()) + " seconds."); 
-			stopWatch.reset();
+			List<String> userNames = tourGuideService.getAllUserNames();
+			logger.debug("Begin Tracker. Tracking " + userNames.size() + " users.");
+			TrackerPass pass;
+			try {
+				pass = trackUsers(userNames);
+			} catch (InterruptedException e) {
+				break;
+			}
+			logger.debug("Tracker Time Elapsed: " + TimeUnit.MILLISECONDS.toSeconds(pass.getElapsedMillis()) + " seconds."); 
+			logger.info("Tracker pass " + pass.toMap());
 			try {
 				logger.debug("Tracker sleeping");
 				TimeUnit.SECONDS.sleep(trackingPollingInterval);
@@ -0,0 +1,40 @@
+package tourGuide.tracker;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import tourGuide.service.TourGuideService;
+
+/**
+ * Exposes the progress of the running tracker pass and the history of the previous ones at /actuator/tracker.
+ * The history is the last trackerHistorySize passes held in memory, lost on restart. Each pass is also
+ * logged at info level and its duration published as the tourguide.tracker.pass timer.
+ */
+@Component
+@Endpoint(id = "tracker")
+public class TrackerEndpoint {
+	private final TourGuideService tourGuideService;
+	
+	public TrackerEndpoint(TourGuideService tourGuideService) {
+		this.tourGuideService = tourGuideService;
+	}
+	
+	@ReadOperation
+	public Map<String, Object> tracker() {
+		Tracker tracker = tourGuideService.tracker;
+		TrackerPass currentPass = tracker.getCurrentPass();
+		List<Map<String, Object>> passHistory = tracker.getPassHistory().stream().map(TrackerPass::toMap).collect(Collectors.toList());
+		Map<String, Object> status = new LinkedHashMap<>();
+		status.put("concurrency", tracker.getConcurrency());
+		status.put("currentPass", currentPass != null ? currentPass.toMap() : null);
+		status.put("passHistory", passHistory);
+		return status;
+	}
+
+}
@@ -0,0 +1,96 @@
+package tourGuide.tracker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of one tracker pass, updated live while it runs.
+ */
+public class TrackerPass {
+	private final long number;
+	private final long startedAt;
+	private final int totalUsers;
+	private final AtomicInteger trackedUsers = new AtomicInteger();
+	private final AtomicInteger failedUsers = new AtomicInteger();
+	private final AtomicInteger usersWithoutRewards = new AtomicInteger();
+	private volatile int concurrency;
+	private volatile boolean rewardsShed = false;
+	private volatile long finishedAt = -1;
+	
+	public TrackerPass(long number, int totalUsers, int concurrency) {
+		this.number = number;
+		this.startedAt = System.currentTimeMillis();
+		this.totalUsers = totalUsers;
+		this.concurrency = concurrency;
+	}
+	
+	void userTracked(boolean rewardsCalculated) {
+		trackedUsers.incrementAndGet();
+		if(!rewardsCalculated) {
+			usersWithoutRewards.incrementAndGet();
+		}
+	}
+	
+	void userFailed() {
+		failedUsers.incrementAndGet();
+	}
+	
+	void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+	
+	void shedRewards() {
+		rewardsShed = true;
+	}
+	
+	void finish() {
+		finishedAt = System.currentTimeMillis();
+	}
+	
+	public boolean isRewardsShed() {
+		return rewardsShed;
+	}
+	
+	public int getDoneUsers() {
+		return trackedUsers.get() + failedUsers.get();
+	}
+	
+	public long getElapsedMillis() {
+		return (finishedAt != -1 ? finishedAt : System.currentTimeMillis()) - startedAt;
+	}
+	
+	public double getUsersPerSecond() {
+		return getDoneUsers() * 1000.0 / Math.max(1, getElapsedMillis());
+	}
+	
+	/**
+	 * Returns the expected duration of the whole pass at the rate so far, -1 while no user is done
+	 */
+	public long getProjectedMillis() {
+		int doneUsers = getDoneUsers();
+		if(finishedAt != -1 || doneUsers == totalUsers) {
+			return getElapsedMillis();
+		}
+		return doneUsers == 0 ? -1 : getElapsedMillis() * totalUsers / doneUsers;
+	}
+	
+	public Map<String, Object> toMap() {
+		Map<String, Object> pass = new LinkedHashMap<>();
+		pass.put("number", number);
+		pass.put("startedAt", startedAt);
+		pass.put("finished", finishedAt != -1);
+		pass.put("totalUsers", totalUsers);
+		pass.put("trackedUsers", trackedUsers.get());
+		pass.put("failedUsers", failedUsers.get());
+		pass.put("usersWithoutRewards", usersWithoutRewards.get());
+		pass.put("usersPerSecond", Math.round(getUsersPerSecond() * 10) / 10.0);
+		pass.put("elapsedMillis", getElapsedMillis());
+		pass.put("projectedMillis", getProjectedMillis());
+		pass.put("projectedCompletion", getProjectedMillis() == -1 ? null : startedAt + getProjectedMillis());
+		pass.put("concurrency", concurrency);
+		pass.put("rewardsShed", rewardsShed);
+		return pass;
+	}
+
+}
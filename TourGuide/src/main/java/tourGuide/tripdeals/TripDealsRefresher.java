@@ -0,0 +1,159 @@
+package tourGuide.tripdeals;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import tourGuide.client.DependencyUnavailableException;
+import tourGuide.client.TripPricerClient;
+import tourGuide.execution.ExecutionSupport;
+import tourGuide.store.TieredUserStore;
+import tourGuide.user.TripDealsQuote;
+import tourGuide.user.User;
+import tourGuide.user.UserPreferences;
+import tripPricer.Provider;
+
+/**
+ * Quotes trip deals and keeps them fresh in the background for the users likely to ask for them.
+ * 
+ * Stored deals are served while they are younger than maxStalenessMillis and were quoted for the
+ * current preferences. Users served deals older than refreshAfterMillis, and users who earned
+ * rewards since their last quote, are queued once each and refreshed at refreshesPerSecond on low
+ * priority threads. When TripPricer is unavailable the stored deals are served as they are and
+ * no quote is recorded.
+ */
+public class TripDealsRefresher {
+	private Logger logger = LoggerFactory.getLogger(TripDealsRefresher.class);
+	private static final String tripPricerApiKey = "test-server-api-key";
+	private final TripPricerClient tripPricer;
+	private final TieredUserStore userStore;
+	private final TripDealsSettings settings;
+	private final Set<String> pendingUserNames = ConcurrentHashMap.newKeySet();
+	private final Queue<String> refreshQueue = new ConcurrentLinkedQueue<>();
+	private final ScheduledExecutorService dispatcher;
+	private final ThreadPoolExecutor refreshExecutor;
+	private final Counter storedDeals = Metrics.counter("tourguide.tripdeals.served", "source", "stored");
+	private final Counter quotedDeals = Metrics.counter("tourguide.tripdeals.served", "source", "quoted");
+	private final Counter refreshes = Metrics.counter("tourguide.tripdeals.refreshes");
+	
+	public TripDealsRefresher(TripPricerClient tripPricer, TieredUserStore userStore, TripDealsSettings settings) {
+		this.tripPricer = tripPricer;
+		this.userStore = userStore;
+		this.settings = settings;
+		ThreadFactory threadFactory = ExecutionSupport.newPlatformThreadFactory("trip-deals");
+		this.refreshExecutor = new ThreadPoolExecutor(settings.getRefreshThreads(), settings.getRefreshThreads(), 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = threadFactory.newThread(runnable);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				});
+		this.dispatcher = Executors.newSingleThreadScheduledExecutor(ExecutionSupport.newPlatformThreadFactory("trip-deals-dispatcher"));
+		long periodMicros = Math.max(1, (long) (TimeUnit.SECONDS.toMicros(1) / settings.getRefreshesPerSecond()));
+		dispatcher.scheduleAtFixedRate(this::dispatch, periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+		Metrics.gauge("tourguide.tripdeals.pending", pendingUserNames, Set::size);
+	}
+	
+	/**
+	 * Returns the stored deals if they still apply, quotes them otherwise
+	 */
+	public List<Provider> getTripDeals(User user) {
+		TripDealsQuote tripDealsQuote = user.getTripDealsQuote();
+		long now = System.currentTimeMillis();
+		if(isServable(tripDealsQuote, user.getUserPreferences(), now)) {
+			storedDeals.increment();
+			if(now - tripDealsQuote.quotedAt >= settings.getRefreshAfterMillis()) {
+				// Likely to ask again, fresher deals are quoted in the background meanwhile
+				requestRefresh(user.getUserName());
+			}
+			return user.getTripDeals();
+		}
+		quotedDeals.increment();
+		try {
+			return quote(user);
+		} catch (DependencyUnavailableException e) {
+			logger.debug("Could not quote trip deals of " + user.getUserName() + ", serving the stored ones: " + e.getMessage());
+			return user.getTripDeals();
+		}
+	}
+	
+	/**
+	 * Queues a refresh if the user already had deals, quoted before the rewards it earned since
+	 */
+	public void rewardsChanged(User user) {
+		TripDealsQuote tripDealsQuote = user.getTripDealsQuote();
+		if(tripDealsQuote != null && tripDealsQuote.rewardPoints != user.getCumulativeRewardPoints()) {
+			requestRefresh(user.getUserName());
+		}
+	}
+	
+	private void requestRefresh(String userName) {
+		if(pendingUserNames.add(userName)) {
+			refreshQueue.add(userName);
+		}
+	}
+	
+	private void dispatch() {
+		// Leaves the rest queued rather than piling up behind a slow TripPricer
+		if(refreshExecutor.getQueue().size() >= settings.getRefreshThreads()) {
+			return;
+		}
+		String userName = refreshQueue.poll();
+		if(userName != null) {
+			refreshExecutor.execute(() -> refresh(userName));
+		}
+	}
+	
+	private void refresh(String userName) {
+		// Removed first so a request arriving during the refresh queues another one
+		pendingUserNames.remove(userName);
+		try {
+			userStore.visit(userName, user -> {
+				TripDealsQuote tripDealsQuote = user.getTripDealsQuote();
+				if(tripDealsQuote == null || !tripDealsQuote.matches(user.getUserPreferences())
+						|| tripDealsQuote.rewardPoints != user.getCumulativeRewardPoints()
+						|| System.currentTimeMillis() - tripDealsQuote.quotedAt >= settings.getRefreshAfterMillis()) {
+					quote(user);
+					refreshes.increment();
+				}
+			});
+		} catch (DependencyUnavailableException e) {
+			logger.debug("Could not refresh trip deals of " + userName + ": " + e.getMessage());
+		}
+	}
+	
+	private boolean isServable(TripDealsQuote tripDealsQuote, UserPreferences userPreferences, long now) {
+		return tripDealsQuote != null && tripDealsQuote.matches(userPreferences)
+				&& now - tripDealsQuote.quotedAt <= settings.getMaxStalenessMillis();
+	}
+	
+	private List<Provider> quote(User user) {
+		UserPreferences userPreferences = user.getUserPreferences();
+		int cumulatativeRewardPoints = user.getCumulativeRewardPoints();
+		long quotedAt = System.currentTimeMillis();
+		List<Provider> providers = tripPricer.getPrice(tripPricerApiKey, user.getUserId(), userPreferences.getNumberOfAdults(), 
+				userPreferences.getNumberOfChildren(), userPreferences.getTripDuration(), cumulatativeRewardPoints);
+		user.setTripDeals(providers);
+		user.setTripDealsQuote(new TripDealsQuote(userPreferences.getNumberOfAdults(), userPreferences.getNumberOfChildren(),
+				userPreferences.getTripDuration(), cumulatativeRewardPoints, quotedAt));
+		return providers;
+	}
+	
+	public void shutdown() {
+		dispatcher.shutdownNow();
+		refreshExecutor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,49 @@
+package tourGuide.tripdeals;
+
+/**
+ * How long stored trip deals are served and how fast they are refreshed in the background.
+ * Bound from the "tourguide.trip-deals.*" properties.
+ */
+public class TripDealsSettings {
+
+	private long maxStalenessMillis = 600000;
+	private long refreshAfterMillis = 300000;
+	private double refreshesPerSecond = 20;
+	private int refreshThreads = 2;
+	
+	public TripDealsSettings() {
+	}
+	
+	public long getMaxStalenessMillis() {
+		return maxStalenessMillis;
+	}
+
+	public void setMaxStalenessMillis(long maxStalenessMillis) {
+		this.maxStalenessMillis = maxStalenessMillis;
+	}
+
+	public long getRefreshAfterMillis() {
+		return refreshAfterMillis;
+	}
+
+	public void setRefreshAfterMillis(long refreshAfterMillis) {
+		this.refreshAfterMillis = refreshAfterMillis;
+	}
+
+	public double getRefreshesPerSecond() {
+		return refreshesPerSecond;
+	}
+
+	public void setRefreshesPerSecond(double refreshesPerSecond) {
+		this.refreshesPerSecond = refreshesPerSecond;
+	}
+
+	public int getRefreshThreads() {
+		return refreshThreads;
+	}
+
+	public void setRefreshThreads(int refreshThreads) {
+		this.refreshThreads = refreshThreads;
+	}
+
+}
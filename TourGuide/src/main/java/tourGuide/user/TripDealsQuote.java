@@ -0,0 +1,27 @@
+package tourGuide.user;
+
+/**
+ * What the trip deals of a user were quoted for, to tell whether they still apply.
+ */
+public class TripDealsQuote {
+	public final int numberOfAdults;
+	public final int numberOfChildren;
+	public final int tripDuration;
+	public final int rewardPoints;
+	public final long quotedAt;
+	
+	public TripDealsQuote(int numberOfAdults, int numberOfChildren, int tripDuration, int rewardPoints, long quotedAt) {
+		this.numberOfAdults = numberOfAdults;
+		this.numberOfChildren = numberOfChildren;
+		this.tripDuration = tripDuration;
+		this.rewardPoints = rewardPoints;
+		this.quotedAt = quotedAt;
+	}
+	
+	public boolean matches(UserPreferences userPreferences) {
+		return numberOfAdults == userPreferences.getNumberOfAdults()
+				&& numberOfChildren == userPreferences.getNumberOfChildren()
+				&& tripDuration == userPreferences.getTripDuration();
+	}
+
+}
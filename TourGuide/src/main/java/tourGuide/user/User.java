@@ -1,10 +1,16 @@
 package tourGuide.user;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
 import tripPricer.Provider;
 
@@ -14,10 +20,14 @@ public class User {
 	private String phoneNumber;
 	private String emailAddress;
 	private Date latestLocationTimestamp;
-	private List<VisitedLocation> visitedLocations = new ArrayList<>();
-	private List<UserReward> userRewards = new ArrayList<>();
+	// Appended by the tracker and by requests while rewards and the codec read it, readers iterate a snapshot
+	private final List<VisitedLocation> visitedLocations = new CopyOnWriteArrayList<>();
+	// Keyed by attraction name, attraction ids are regenerated each time gpsUtil lists the attractions
+	private final Map<String, UserReward> userRewards = new ConcurrentHashMap<>();
+	private final AtomicInteger cumulativeRewardPoints = new AtomicInteger();
 	private UserPreferences userPreferences = new UserPreferences();
 	private List<Provider> tripDeals = new ArrayList<>();
+	private volatile TripDealsQuote tripDealsQuote;
 	public User(UUID userId, String userName, String phoneNumber, String emailAddress) {
 		this.userId = userId;
 		this.userName = userName;
@@ -69,24 +79,50 @@ public class User {
 		visitedLocations.clear();
 	}
 	
-	public void addUserReward(UserReward userReward) {
-		if(userRewards.stream().filter(r -> !r.attraction.attractionName.equals(userReward.attraction)).count() == 0) {
-			userRewards.add(userReward);
+	/**
+	 * Adds the reward unless the user was already rewarded for this attraction
+	 * @return true if the reward was added
+	 */
+	public boolean addUserReward(UserReward userReward) {
+		if(userRewards.putIfAbsent(userReward.attraction.attractionName, userReward) == null) {
+			cumulativeRewardPoints.addAndGet(userReward.getRewardPoints());
+			return true;
 		}
+		return false;
 	}
 	
+	public boolean hasUserReward(Attraction attraction) {
+		return userRewards.containsKey(attraction.attractionName);
+	}
+	
+	/**
+	 * @return the rewards ordered by the time their attraction was visited
+	 */
 	public List<UserReward> getUserRewards() {
-		return userRewards;
+		List<UserReward> rewards = new ArrayList<>(userRewards.values());
+		rewards.sort(Comparator.comparingLong(reward -> reward.timeVisited));
+		return rewards;
+	}
+	
+	public int getCumulativeRewardPoints() {
+		return cumulativeRewardPoints.get();
 	}
 	
 	public UserPreferences getUserPreferences() {
 		return userPreferences;
 	}
 	
+	/**
+	 * Also invalidates the trip deals, quoted for the former preferences
+	 */
 	public void setUserPreferences(UserPreferences userPreferences) {
 		this.userPreferences = userPreferences;
+		this.tripDealsQuote = null;
 	}
 
+	/**
+	 * Safe against concurrent appends, the history only shrinks through clearVisitedLocations
+	 */
 	public VisitedLocation getLastVisitedLocation() {
 		return visitedLocations.get(visitedLocations.size() - 1);
 	}
@@ -98,5 +134,16 @@ public class User {
 	public List<Provider> getTripDeals() {
 		return tripDeals;
 	}
+	
+	public void setTripDealsQuote(TripDealsQuote tripDealsQuote) {
+		this.tripDealsQuote = tripDealsQuote;
+	}
+	
+	/**
+	 * Returns what the trip deals were quoted for, null if they were not quoted or were invalidated
+	 */
+	public TripDealsQuote getTripDealsQuote() {
+		return tripDealsQuote;
+	}
 
 }
@@ -1,26 +1,34 @@
 package tourGuide.user;
 
+import java.util.Date;
+
 import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 
 public class UserReward {
 
-	public final VisitedLocation visitedLocation;
+	// Only where and when the attraction was visited are kept, not the whole VisitedLocation,
+	// so /getRewards reports latitude, longitude, location and timeVisited instead of a visitedLocation object
 	public final Attraction attraction;
-	private int rewardPoints;
+	public final double latitude;
+	public final double longitude;
+	public final long timeVisited;
+	private final int rewardPoints;
 	public UserReward(VisitedLocation visitedLocation, Attraction attraction, int rewardPoints) {
-		this.visitedLocation = visitedLocation;
 		this.attraction = attraction;
+		this.latitude = visitedLocation.location.latitude;
+		this.longitude = visitedLocation.location.longitude;
+		this.timeVisited = visitedLocation.timeVisited.getTime();
 		this.rewardPoints = rewardPoints;
 	}
 	
-	public UserReward(VisitedLocation visitedLocation, Attraction attraction) {
-		this.visitedLocation = visitedLocation;
-		this.attraction = attraction;
+	public Location getLocation() {
+		return new Location(latitude, longitude);
 	}
-
-	public void setRewardPoints(int rewardPoints) {
-		this.rewardPoints = rewardPoints;
+	
+	public Date getTimeVisited() {
+		return new Date(timeVisited);
 	}
 	
 	public int getRewardPoints() {
@@ -0,0 +1,34 @@
+package tourGuide.warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.stereotype.Component;
+
+/**
+ * Readiness at /actuator/warmup, 503 until the warm-up is over, for probes that must leave /actuator/health to liveness.
+ */
+@Component
+@WebEndpoint(id = "warmup")
+public class WarmupEndpoint {
+	private final WarmupService warmupService;
+	
+	public WarmupEndpoint(WarmupService warmupService) {
+		this.warmupService = warmupService;
+	}
+	
+	@ReadOperation
+	public WebEndpointResponse<Map<String, Object>> warmup() {
+		Map<String, Object> status = new LinkedHashMap<>();
+		status.put("ready", warmupService.isReady());
+		if(!warmupService.isReady()) {
+			return new WebEndpointResponse<>(status, WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+		}
+		status.put("warmupMillis", warmupService.getWarmupMillis());
+		return new WebEndpointResponse<>(status, WebEndpointResponse.STATUS_OK);
+	}
+
+}
@@ -0,0 +1,30 @@
+package tourGuide.warmup;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps /actuator/health out of service until the warm-up is over, so no traffic is routed before.
+ * Turned off by tourguide.warmup.health-indicator=false when /actuator/health serves a liveness probe,
+ * readiness is then read from /actuator/warmup.
+ */
+@Component
+@ConditionalOnProperty(name = "tourguide.warmup.health-indicator", havingValue = "true", matchIfMissing = true)
+public class WarmupHealthIndicator implements HealthIndicator {
+	private final WarmupService warmupService;
+	
+	public WarmupHealthIndicator(WarmupService warmupService) {
+		this.warmupService = warmupService;
+	}
+	
+	@Override
+	public Health health() {
+		if(!warmupService.isReady()) {
+			return Health.outOfService().withDetail("warmup", "in progress").build();
+		}
+		return Health.up().withDetail("warmupMillis", warmupService.getWarmupMillis()).build();
+	}
+
+}
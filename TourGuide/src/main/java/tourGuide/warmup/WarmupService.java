@@ -0,0 +1,124 @@
+package tourGuide.warmup;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.jsoniter.output.JsonStream;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import io.micrometer.core.instrument.Metrics;
+import tourGuide.client.GpsUtilClient;
+import tourGuide.client.RewardCentralClient;
+import tourGuide.execution.ExecutionSupport;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tourGuide.store.UserCodec;
+import tourGuide.user.User;
+import tripPricer.Provider;
+
+/**
+ * Warms up the application once started, then starts the tracker after a jittered delay.
+ * 
+ * Loads the attraction catalog, runs the reward, distance and user codec paths on a user of its own,
+ * with a RewardsService of its own so nothing reaches the event log, and serializes each response type
+ * so jsoniter generates its encoders up front. Trip deals are not quoted, the pricer keeps what it quotes.
+ */
+@Service
+public class WarmupService {
+	private Logger logger = LoggerFactory.getLogger(WarmupService.class);
+	private final TourGuideService tourGuideService;
+	private final RewardsService rewardsService;
+	private final WarmupSettings settings;
+	private volatile boolean ready = false;
+	private volatile long warmupMillis = -1;
+	
+	public WarmupService(TourGuideService tourGuideService, GpsUtilClient gpsUtilClient, RewardCentralClient rewardCentralClient,
+			WarmupSettings settings) {
+		this.tourGuideService = tourGuideService;
+		this.rewardsService = new RewardsService(gpsUtilClient, rewardCentralClient);
+		this.settings = settings;
+	}
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		ExecutionSupport.newPlatformThreadFactory("warmup").newThread(this::warmUp).start();
+	}
+	
+	public void warmUp() {
+		long start = System.currentTimeMillis();
+		try {
+			if(settings.isEnabled()) {
+				logger.debug("Warming up");
+				exerciseRequestPaths();
+			}
+		} catch (RuntimeException e) {
+			logger.warn("Warm-up failed, serving requests cold", e);
+		} finally {
+			warmupMillis = System.currentTimeMillis() - start;
+			Metrics.timer("tourguide.warmup").record(warmupMillis, TimeUnit.MILLISECONDS);
+			ready = true;
+			logger.info("Ready after a warm-up of " + warmupMillis + " ms");
+			startTracker();
+		}
+	}
+	
+	private void exerciseRequestPaths() {
+		User user = new User(UUID.randomUUID(), "warmupUser", "000", "warmupUser@tourGuide.com");
+		// Anaheim, next to an attraction, so the reward paths run too
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), new Location(33.817595, -117.922008), new Date());
+		// Loads the attraction catalog, kept by the gpsUtil client and the proximity index
+		List<Attraction> nearbyAttractions = tourGuideService.getNearByAttractions(visitedLocation);
+		String attractionName = nearbyAttractions.isEmpty() ? "" : nearbyAttractions.get(0).attractionName;
+		List<String> nearbyUsers = tourGuideService.getUsersNearAttraction(attractionName);
+		
+		user.addToVisitedLocations(visitedLocation);
+		rewardsService.calculateRewards(user);
+		List<Provider> tripDeals = Collections.singletonList(new Provider(UUID.randomUUID(), "warmupProvider", 0));
+		
+		Map<String, Location> currentLocations = new LinkedHashMap<>();
+		currentLocations.put(user.getUserId().toString(), visitedLocation.location);
+		for(int i = 0; i < settings.getIterations(); i++) {
+			Location location = new Location(ThreadLocalRandom.current().nextDouble(-85, 85), ThreadLocalRandom.current().nextDouble(-180, 180));
+			rewardsService.getDistance(visitedLocation.location, location);
+			JsonStream.serialize(location);
+			JsonStream.serialize(nearbyAttractions);
+			JsonStream.serialize(nearbyUsers);
+			JsonStream.serialize(currentLocations);
+			JsonStream.serialize(user.getUserRewards());
+			JsonStream.serialize(tripDeals);
+			UserCodec.decode(UserCodec.encode(user));
+		}
+	}
+	
+	private void startTracker() {
+		long delayMillis = settings.getTrackerStartDelayMillis();
+		if(settings.getTrackerStartJitterMillis() > 0) {
+			// Spreads the first pass of several instances started together
+			delayMillis += ThreadLocalRandom.current().nextLong(settings.getTrackerStartJitterMillis());
+		}
+		tourGuideService.tracker.startTracking(delayMillis);
+	}
+	
+	public boolean isReady() {
+		return ready;
+	}
+	
+	public long getWarmupMillis() {
+		return warmupMillis;
+	}
+
+}
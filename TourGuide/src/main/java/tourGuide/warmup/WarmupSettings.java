@@ -0,0 +1,49 @@
+package tourGuide.warmup;
+
+/**
+ * Warm-up run before the application reports ready, and delay of the first tracker pass.
+ * Bound from the "tourguide.warmup.*" properties.
+ */
+public class WarmupSettings {
+
+	private boolean enabled = true;
+	private int iterations = 10000;
+	private long trackerStartDelayMillis = 10000;
+	private long trackerStartJitterMillis = 5000;
+	
+	public WarmupSettings() {
+	}
+	
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public void setIterations(int iterations) {
+		this.iterations = iterations;
+	}
+
+	public long getTrackerStartDelayMillis() {
+		return trackerStartDelayMillis;
+	}
+
+	public void setTrackerStartDelayMillis(long trackerStartDelayMillis) {
+		this.trackerStartDelayMillis = trackerStartDelayMillis;
+	}
+
+	public long getTrackerStartJitterMillis() {
+		return trackerStartJitterMillis;
+	}
+
+	public void setTrackerStartJitterMillis(long trackerStartJitterMillis) {
+		this.trackerStartJitterMillis = trackerStartJitterMillis;
+	}
+
+}
@@ -0,0 +1,118 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import tourGuide.client.CircuitBreaker;
+import tourGuide.client.ClientGuard;
+import tourGuide.client.ClientSettings;
+import tourGuide.client.DependencyUnavailableException;
+
+public class TestClientGuard {
+
+	@Test
+	public void slowCallFallsBack() {
+		ClientSettings settings = new ClientSettings();
+		settings.setTimeoutMillis(50);
+		settings.setMaxRetries(0);
+		ClientGuard guard = new ClientGuard("slow", settings);
+		
+		String result = guard.call(() -> {
+			TimeUnit.SECONDS.sleep(5);
+			return "late";
+		}, () -> "fallback");
+		guard.shutdown();
+		
+		assertEquals("fallback", result);
+	}
+	
+	@Test
+	public void failingCallIsRetried() {
+		ClientSettings settings = new ClientSettings();
+		settings.setMaxRetries(2);
+		settings.setRetryBackoffMillis(1);
+		ClientGuard guard = new ClientGuard("flaky", settings);
+		int[] attempts = new int[1];
+		
+		String result = guard.call(() -> {
+			if(++attempts[0] < 3) {
+				throw new IllegalStateException();
+			}
+			return "ok";
+		}, () -> null);
+		guard.shutdown();
+		
+		assertEquals("ok", result);
+		assertEquals(3, attempts[0]);
+	}
+	
+	@Test(expected = DependencyUnavailableException.class)
+	public void failureWithoutFallbackThrows() {
+		ClientSettings settings = new ClientSettings();
+		settings.setMaxRetries(0);
+		ClientGuard guard = new ClientGuard("down", settings);
+		try {
+			guard.call(() -> {
+				throw new IllegalStateException();
+			}, () -> null);
+		} finally {
+			guard.shutdown();
+		}
+	}
+	
+	@Test
+	public void circuitOpensAfterConsecutiveFailures() {
+		ClientSettings settings = new ClientSettings();
+		settings.setMaxRetries(0);
+		settings.setFailureThreshold(3);
+		ClientGuard guard = new ClientGuard("down", settings);
+		int[] attempts = new int[1];
+		
+		for(int i = 0; i < 10; i++) {
+			guard.call(() -> {
+				attempts[0]++;
+				throw new IllegalStateException();
+			}, () -> "fallback");
+		}
+		guard.shutdown();
+		
+		assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitBreaker().getState());
+		assertEquals(3, attempts[0]);
+	}
+	
+	@Test
+	public void fullBulkheadDoesNotOpenCircuit() throws InterruptedException {
+		ClientSettings settings = new ClientSettings();
+		settings.setPoolSize(1);
+		settings.setQueueCapacity(1);
+		settings.setMaxRetries(0);
+		settings.setFailureThreshold(1);
+		ClientGuard guard = new ClientGuard("busy", settings);
+		List<Thread> slowCallers = new ArrayList<>();
+		for(int i = 0; i < 2; i++) {
+			Thread slowCaller = new Thread(() -> guard.call(() -> {
+				TimeUnit.MILLISECONDS.sleep(300);
+				return "slow";
+			}, () -> "fallback"));
+			slowCaller.start();
+			slowCallers.add(slowCaller);
+		}
+		TimeUnit.MILLISECONDS.sleep(100);
+		
+		String result = guard.call(() -> "fast", () -> "fallback");
+		for(Thread slowCaller : slowCallers) {
+			slowCaller.join();
+		}
+		guard.shutdown();
+		
+		assertEquals("fallback", result);
+		assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitBreaker().getState());
+		assertEquals(1L, guard.getStatus().get("rejectedByBulkhead"));
+	}
+	
+}
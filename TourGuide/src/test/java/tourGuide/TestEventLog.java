@@ -0,0 +1,144 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import rewardCentral.RewardCentral;
+import tourGuide.eventlog.EventLog;
+import tourGuide.eventlog.EventReplay;
+import tourGuide.service.RewardsService;
+import tourGuide.user.User;
+import tourGuide.user.UserReward;
+
+public class TestEventLog {
+
+	@Test
+	public void segmentsRollWhenFull() throws Exception {
+		Path directory = Files.createTempDirectory("eventlog");
+		EventLog eventLog = new EventLog(directory, 128);
+		UUID userId = UUID.randomUUID();
+		for(int i = 0; i < 10; i++) {
+			eventLog.appendVisitedLocation(new VisitedLocation(userId, new Location(i, i), new Date()));
+		}
+		List<Path> segments = eventLog.getSegments();
+		eventLog.close();
+		
+		// 41 bytes per location, 3 fit in a 128 bytes segment
+		assertEquals(4, segments.size());
+	}
+	
+	@Test
+	public void oldestSegmentsDeletedOverRetention() throws Exception {
+		Path directory = Files.createTempDirectory("eventlog");
+		EventLog eventLog = new EventLog(directory, 128, 2);
+		UUID userId = UUID.randomUUID();
+		for(int i = 0; i < 10; i++) {
+			eventLog.appendVisitedLocation(new VisitedLocation(userId, new Location(i, i), new Date()));
+		}
+		eventLog.close();
+		EventLog restartedEventLog = new EventLog(directory, 128, 2);
+		List<Path> segments = restartedEventLog.getSegments();
+		restartedEventLog.close();
+		
+		// 4 segments written, then one more by the restart
+		assertEquals(2, segments.size());
+		assertTrue(segments.get(0).getFileName().toString().endsWith("4.log"));
+	}
+	
+	@Test
+	public void oversizeEventSkipped() throws Exception {
+		Path directory = Files.createTempDirectory("eventlog");
+		EventLog eventLog = new EventLog(directory, 64);
+		UUID userId = UUID.randomUUID();
+		VisitedLocation visitedLocation = new VisitedLocation(userId, new Location(0, 0), new Date());
+		char[] name = new char[100];
+		Arrays.fill(name, 'a');
+		Attraction attraction = new Attraction(new String(name), "", "", 0, 0);
+		
+		eventLog.appendUserReward(userId, new UserReward(visitedLocation, attraction, 10));
+		eventLog.appendVisitedLocation(visitedLocation);
+		List<Path> segments = eventLog.getSegments();
+		eventLog.close();
+		
+		assertEquals(1, segments.size());
+	}
+	
+	@Test
+	public void replayRecomputesRewards() throws Exception {
+		GpsUtil gpsUtil = new GpsUtil();
+		List<Attraction> attractions = gpsUtil.getAttractions();
+		Path directory = Files.createTempDirectory("eventlog");
+		EventLog eventLog = new EventLog(directory, 256);
+		UUID nearUserId = UUID.randomUUID();
+		UUID farUserId = UUID.randomUUID();
+		Attraction attraction = attractions.get(0);
+		eventLog.appendVisitedLocation(new VisitedLocation(farUserId, new Location(attraction.latitude + 1, attraction.longitude), new Date()));
+		for(int i = 0; i < 10; i++) {
+			eventLog.appendVisitedLocation(new VisitedLocation(nearUserId, new Location(0, 0), new Date()));
+		}
+		eventLog.appendVisitedLocation(new VisitedLocation(nearUserId, attraction, new Date()));
+		
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		Map<UUID, User> users = new EventReplay(eventLog, gpsUtil::getAttractions, 4).replayRewards(rewardsService);
+		eventLog.close();
+		
+		assertEquals(2, users.size());
+		assertEquals(11, users.get(nearUserId).getVisitedLocations().size());
+		assertTrue(users.get(nearUserId).hasUserReward(attraction));
+		assertTrue(users.get(farUserId).getUserRewards().isEmpty());
+		
+		// With a wider buffer the far location is now rewarded too
+		rewardsService.setProximityBuffer(100);
+		users = new EventReplay(eventLog, gpsUtil::getAttractions, 4).replayRewards(rewardsService);
+		assertTrue(users.get(farUserId).hasUserReward(attraction));
+	}
+	
+	@Test
+	public void replayKeepsLoggedRewards() throws Exception {
+		GpsUtil gpsUtil = new GpsUtil();
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+		Path directory = Files.createTempDirectory("eventlog");
+		EventLog eventLog = new EventLog(directory, 256);
+		UUID userId = UUID.randomUUID();
+		VisitedLocation visitedLocation = new VisitedLocation(userId, attraction, new Date());
+		eventLog.appendVisitedLocation(visitedLocation);
+		eventLog.appendUserReward(userId, new UserReward(visitedLocation, attraction, 12345));
+		
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		Map<UUID, User> users = new EventReplay(eventLog, gpsUtil::getAttractions, 4).replayRewards(rewardsService);
+		List<Path> segments = eventLog.getSegments();
+		eventLog.close();
+		
+		assertEquals(1, users.get(userId).getUserRewards().size());
+		assertEquals(12345, users.get(userId).getCumulativeRewardPoints());
+		assertEquals(1, segments.size());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void replayRejectsServiceAppendingToTheLog() throws Exception {
+		GpsUtil gpsUtil = new GpsUtil();
+		EventLog eventLog = new EventLog(Files.createTempDirectory("eventlog"), 256);
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		rewardsService.setEventLog(eventLog);
+		try {
+			new EventReplay(eventLog, gpsUtil::getAttractions, 4).replayRewards(rewardsService);
+		} finally {
+			eventLog.close();
+		}
+	}
+	
+}
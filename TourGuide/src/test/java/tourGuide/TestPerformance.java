@@ -1,26 +1,46 @@
 package tourGuide;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.time.StopWatch;
+import org.junit.Assume;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import tourGuide.client.ClientSettings;
+import tourGuide.client.GpsUtilClient;
+import tourGuide.client.RewardCentralClient;
+import tourGuide.client.TripPricerClient;
+import tourGuide.execution.ExecutionMode;
+import tourGuide.execution.ExecutionSettings;
+import tourGuide.execution.ExecutionSupport;
 import tourGuide.helper.InternalTestHelper;
 import tourGuide.service.RewardsService;
 import tourGuide.service.TourGuideService;
+import tourGuide.store.AttractionProximityIndex;
+import tourGuide.store.LastLocationStore;
+import tourGuide.store.TieredUserStore;
+import tourGuide.store.UserStoreSettings;
+import tourGuide.tracker.Tracker;
+import tourGuide.tracker.TrackerPass;
+import tourGuide.tripdeals.TripDealsRefresher;
+import tourGuide.tripdeals.TripDealsSettings;
 import tourGuide.user.User;
 import tourGuide.user.UserReward;
+import tripPricer.TripPricer;
 
 public class TestPerformance {
 	
@@ -53,16 +73,16 @@ public class TestPerformance {
 		InternalTestHelper.setInternalUserNumber(100);
 		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
 
-		List<User> allUsers = new ArrayList<>();
-		allUsers = tourGuideService.getAllUsers();
+		List<String> allUserNames = new ArrayList<>();
+		allUserNames = tourGuideService.getAllUserNames();
 		
 	    StopWatch stopWatch = new StopWatch();
 		stopWatch.start();
-		for(User user : allUsers) {
-			tourGuideService.trackUserLocation(user);
+		for(String userName : allUserNames) {
+			tourGuideService.withUser(userName, tourGuideService::trackUserLocation);
 		}
 		stopWatch.stop();
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 
 		System.out.println("highVolumeTrackLocation: Time Elapsed: " + TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()) + " seconds."); 
 		assertTrue(TimeUnit.MINUTES.toSeconds(15) >= TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()));
@@ -81,20 +101,128 @@ public class TestPerformance {
 		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
 		
 	    Attraction attraction = gpsUtil.getAttractions().get(0);
-		List<User> allUsers = new ArrayList<>();
-		allUsers = tourGuideService.getAllUsers();
-		allUsers.forEach(u -> u.addToVisitedLocations(new VisitedLocation(u.getUserId(), attraction, new Date())));
+		List<String> allUserNames = new ArrayList<>();
+		allUserNames = tourGuideService.getAllUserNames();
+		allUserNames.forEach(name -> tourGuideService.withUser(name, u -> {
+			u.addToVisitedLocations(new VisitedLocation(u.getUserId(), attraction, new Date()));
+			return null;
+		}));
 	     
-	    allUsers.forEach(u -> rewardsService.calculateRewards(u));
+	    allUserNames.forEach(name -> tourGuideService.withUser(name, u -> {
+	    	rewardsService.calculateRewards(u);
+	    	return null;
+	    }));
 	    
-		for(User user : allUsers) {
-			assertTrue(user.getUserRewards().size() > 0);
+		for(String userName : allUserNames) {
+			assertTrue(tourGuideService.withUser(userName, User::getUserRewards).size() > 0);
 		}
 		stopWatch.stop();
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 
 		System.out.println("highVolumeGetRewards: Time Elapsed: " + TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()) + " seconds."); 
 		assertTrue(TimeUnit.MINUTES.toSeconds(20) >= TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()));
 	}
 	
+	/*
+	 * Compares the PLATFORM and VIRTUAL execution modes on a full tracking pass of 100,000 users.
+	 * The VIRTUAL run needs JDK 21 or later, it falls back to PLATFORM otherwise.
+	 */
+	@Ignore
+	@Test
+	public void highVolumeTrackLocationPlatformThreads() throws InterruptedException {
+		long seconds = trackAllUsers(ExecutionMode.PLATFORM, 100000);
+		System.out.println("highVolumeTrackLocationPlatformThreads: Time Elapsed: " + seconds + " seconds.");
+		assertTrue(TimeUnit.MINUTES.toSeconds(15) >= seconds);
+	}
+	
+	@Ignore
+	@Test
+	public void highVolumeTrackLocationVirtualThreads() throws InterruptedException {
+		// Would silently run in PLATFORM mode on the Java 8 build
+		Assume.assumeTrue(ExecutionSupport.isVirtualThreadSupported());
+		long seconds = trackAllUsers(ExecutionMode.VIRTUAL, 100000);
+		System.out.println("highVolumeTrackLocationVirtualThreads: Time Elapsed: " + seconds + " seconds.");
+		assertTrue(TimeUnit.MINUTES.toSeconds(15) >= seconds);
+	}
+	
+	@Ignore
+	@Test
+	public void highVolumeLastLocationsScan() {
+		// Compares a scan of every user's last location through the object graph and through the columnar store
+		int userNumber = 1000000;
+		List<User> allUsers = new ArrayList<>(userNumber);
+		LastLocationStore lastLocations = new LastLocationStore(userNumber);
+		Random random = new Random();
+		for(int i = 0; i < userNumber; i++) {
+			User user = new User(UUID.randomUUID(), "internalUser" + i, "000", "internalUser" + i + "@tourGuide.com");
+			VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(),
+					new Location(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180), new Date());
+			user.addToVisitedLocations(visitedLocation);
+			allUsers.add(user);
+			lastLocations.update(visitedLocation);
+		}
+		
+		long objectGraphNanos = Long.MAX_VALUE;
+		long columnarNanos = Long.MAX_VALUE;
+		int objectGraphCount = 0;
+		int[] columnarCount = new int[1];
+		for(int run = 0; run < 10; run++) {
+			long start = System.nanoTime();
+			objectGraphCount = 0;
+			for(User user : allUsers) {
+				Location location = user.getLastVisitedLocation().location;
+				if(location.latitude > 0 && location.longitude > 0) {
+					objectGraphCount++;
+				}
+			}
+			objectGraphNanos = Math.min(objectGraphNanos, System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			columnarCount[0] = 0;
+			lastLocations.forEach((userIdMostSigBits, userIdLeastSigBits, latitude, longitude, timeVisited) -> {
+				if(latitude > 0 && longitude > 0) {
+					columnarCount[0]++;
+				}
+			});
+			columnarNanos = Math.min(columnarNanos, System.nanoTime() - start);
+		}
+		
+		System.out.println("highVolumeLastLocationsScan: object graph " + TimeUnit.NANOSECONDS.toMillis(objectGraphNanos)
+				+ " ms, columnar store " + TimeUnit.NANOSECONDS.toMillis(columnarNanos) + " ms.");
+		assertEquals(objectGraphCount, columnarCount[0]);
+	}
+	
+	private long trackAllUsers(ExecutionMode mode, int userNumber) throws InterruptedException {
+		ClientSettings clientSettings = new ClientSettings();
+		clientSettings.setPoolSize(500);
+		clientSettings.setQueueCapacity(userNumber);
+		ExecutionSettings executionSettings = new ExecutionSettings();
+		executionSettings.setMode(mode);
+		executionSettings.setTrackerConcurrency(500);
+		executionSettings.setTrackerMaxConcurrency(500);
+		GpsUtilClient gpsUtilClient = new GpsUtilClient(new GpsUtil(), clientSettings, mode);
+		RewardsService rewardsService = new RewardsService(gpsUtilClient, new RewardCentralClient(new RewardCentral(), clientSettings, mode));
+		InternalTestHelper.setInternalUserNumber(userNumber);
+		TieredUserStore userStore = new TieredUserStore(new UserStoreSettings());
+		TripDealsRefresher tripDealsRefresher = new TripDealsRefresher(new TripPricerClient(new TripPricer(), clientSettings, mode),
+				userStore, new TripDealsSettings());
+		TourGuideService tourGuideService = new TourGuideService(gpsUtilClient, rewardsService, tripDealsRefresher, executionSettings,
+				userStore, new LastLocationStore(), new AttractionProximityIndex(gpsUtilClient::getAttractions));
+		tourGuideService.tracker.stopTracking();
+		Tracker tracker = new Tracker(tourGuideService, executionSettings);
+		
+		StopWatch stopWatch = new StopWatch();
+		stopWatch.start();
+		TrackerPass pass = tracker.trackUsers(tourGuideService.getAllUserNames());
+		stopWatch.stop();
+		tracker.stopTracking();
+		tourGuideService.close();
+		
+		assertEquals(userNumber, pass.getDoneUsers());
+		for(String userName : tourGuideService.getAllUserNames()) {
+			assertTrue(tourGuideService.withUser(userName, User::getVisitedLocations).size() > 3);
+		}
+		return TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime());
+	}
+	
 }
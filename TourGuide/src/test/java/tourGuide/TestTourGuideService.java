@@ -1,23 +1,48 @@
 package tourGuide;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.jsoniter.output.JsonStream;
+
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import tourGuide.client.DependencyUnavailableException;
+import tourGuide.client.TripPricerClient;
 import tourGuide.helper.InternalTestHelper;
 import tourGuide.service.RewardsService;
 import tourGuide.service.TourGuideService;
+import tourGuide.store.AttractionProximityIndex;
+import tourGuide.store.TieredUserStore;
+import tourGuide.store.UserStoreSettings;
+import tourGuide.tripdeals.TripDealsRefresher;
+import tourGuide.tripdeals.TripDealsSettings;
 import tourGuide.user.User;
+import tourGuide.user.UserPreferences;
 import tripPricer.Provider;
+import tripPricer.TripPricer;
 
 public class TestTourGuideService {
 
@@ -30,10 +55,80 @@ public class TestTourGuideService {
 		
 		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
 		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 		assertTrue(visitedLocation.userId.equals(user.getUserId()));
 	}
 	
+	@Test
+	public void getUserLocationCoalescesConcurrentLookups() throws Exception {
+		AtomicInteger gpsCalls = new AtomicInteger();
+		GpsUtil gpsUtil = new GpsUtil() {
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				gpsCalls.incrementAndGet();
+				return super.getUserLocation(userId);
+			}
+		};
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		ExecutorService executorService = Executors.newFixedThreadPool(10);
+		List<Future<VisitedLocation>> lookups = new ArrayList<>();
+		for(int i = 0; i < 10; i++) {
+			lookups.add(executorService.submit(() -> tourGuideService.getUserLocation(user)));
+		}
+		for(Future<VisitedLocation> lookup : lookups) {
+			assertEquals(user.getUserId(), lookup.get(10, TimeUnit.SECONDS).userId);
+		}
+		executorService.shutdown();
+		tourGuideService.close();
+		
+		assertEquals(1, gpsCalls.get());
+		assertEquals(1, user.getVisitedLocations().size());
+	}
+	
+	@Test
+	public void staleLookupsAndTrackerRecordEveryLocation() throws Exception {
+		AtomicInteger gpsCalls = new AtomicInteger();
+		GpsUtil gpsUtil = new GpsUtil() {
+			@Override
+			public VisitedLocation getUserLocation(UUID userId) {
+				gpsCalls.incrementAndGet();
+				return new VisitedLocation(userId, new Location(0, 0), new Date());
+			}
+		};
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.tracker.stopTracking();
+		// Every recorded location is already stale for the lookups
+		tourGuideService.setLocationFreshness(1);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(0, 0), new Date(0)));
+		tourGuideService.addUser(user);
+		
+		ExecutorService executorService = Executors.newFixedThreadPool(2);
+		Future<?> tracker = executorService.submit(() -> {
+			for(int i = 0; i < 200; i++) {
+				tourGuideService.trackUserLocation("jon", false);
+			}
+		});
+		Future<?> lookups = executorService.submit(() -> {
+			for(int i = 0; i < 200; i++) {
+				tourGuideService.withUser("jon", tourGuideService::getUserLocation);
+			}
+		});
+		tracker.get(30, TimeUnit.SECONDS);
+		lookups.get(30, TimeUnit.SECONDS);
+		executorService.shutdown();
+		tourGuideService.close();
+		
+		assertEquals(1 + gpsCalls.get(), user.getVisitedLocations().size());
+		assertFalse(user.getVisitedLocations().contains(null));
+	}
+	
 	@Test
 	public void addUser() {
 		GpsUtil gpsUtil = new GpsUtil();
@@ -47,17 +142,17 @@ public class TestTourGuideService {
 		tourGuideService.addUser(user);
 		tourGuideService.addUser(user2);
 		
-		User retrivedUser = tourGuideService.getUser(user.getUserName());
-		User retrivedUser2 = tourGuideService.getUser(user2.getUserName());
+		UUID retrivedUserId = tourGuideService.withUser(user.getUserName(), User::getUserId);
+		UUID retrivedUserId2 = tourGuideService.withUser(user2.getUserName(), User::getUserId);
 
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 		
-		assertEquals(user, retrivedUser);
-		assertEquals(user2, retrivedUser2);
+		assertEquals(user.getUserId(), retrivedUserId);
+		assertEquals(user2.getUserId(), retrivedUserId2);
 	}
 	
 	@Test
-	public void getAllUsers() {
+	public void getAllUserNames() {
 		GpsUtil gpsUtil = new GpsUtil();
 		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
 		InternalTestHelper.setInternalUserNumber(0);
@@ -69,12 +164,95 @@ public class TestTourGuideService {
 		tourGuideService.addUser(user);
 		tourGuideService.addUser(user2);
 		
-		List<User> allUsers = tourGuideService.getAllUsers();
+		List<String> allUserNames = tourGuideService.getAllUserNames();
 
+		tourGuideService.close();
+		
+		assertTrue(allUserNames.contains(user.getUserName()));
+		assertTrue(allUserNames.contains(user2.getUserName()));
+	}
+	
+	@Test
+	public void getAllCurrentLocations() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		
+		// Stopped first so the tracker does not move the users
+		tourGuideService.tracker.stopTracking();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		User user2 = new User(UUID.randomUUID(), "jon2", "000", "jon2@tourGuide.com");
+		tourGuideService.addUser(user);
+		tourGuideService.addUser(user2);
+		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
+		VisitedLocation visitedLocation2 = tourGuideService.trackUserLocation(user2);
+		
+		Map<String, Location> currentLocations = tourGuideService.getAllCurrentLocations();
+		tourGuideService.close();
+		
+		assertEquals(2, currentLocations.size());
+		assertEquals(visitedLocation.location.latitude, currentLocations.get(user.getUserId().toString()).latitude, 0);
+		assertEquals(visitedLocation2.location.longitude, currentLocations.get(user2.getUserId().toString()).longitude, 0);
+	}
+	
+	@Test
+	public void allCurrentLocationsWrittenAsSerialized() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(10);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.tracker.stopTracking();
+		
+		String serialized = JsonStream.serialize(tourGuideService.getAllCurrentLocations());
+		String written = CurrentLocationsJson.write(tourGuideService);
+		tourGuideService.close();
+		
+		assertEquals(serialized, written);
+	}
+	
+	@Test
+	public void getUsersNearAttraction() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		
+		Attraction attraction = gpsUtil.getAttractions().get(0);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		User user2 = new User(UUID.randomUUID(), "jon2", "000", "jon2@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+		user2.addToVisitedLocations(new VisitedLocation(user2.getUserId(), new Location(attraction.latitude + 1, attraction.longitude), new Date()));
+		// Stopped first so the tracker does not move the users
 		tourGuideService.tracker.stopTracking();
+		tourGuideService.addUser(user);
+		tourGuideService.addUser(user2);
+		List<String> nearbyUsers = tourGuideService.getUsersNearAttraction(attraction.attractionName);
+		tourGuideService.close();
+		
+		assertEquals(1, nearbyUsers.size());
+		assertEquals(user.getUserId().toString(), nearbyUsers.get(0));
+	}
+	
+	@Test
+	public void proximityIndexRetriesUnavailableCatalog() {
+		GpsUtil gpsUtil = new GpsUtil();
+		List<Attraction> attractions = gpsUtil.getAttractions();
+		AtomicInteger catalogRequests = new AtomicInteger();
+		AttractionProximityIndex proximityIndex = new AttractionProximityIndex(() -> {
+			if(catalogRequests.incrementAndGet() == 1) {
+				throw new DependencyUnavailableException("gpsUtil", new IllegalStateException());
+			}
+			return attractions;
+		});
+		Attraction attraction = attractions.get(0);
+		UUID userId = UUID.randomUUID();
 		
-		assertTrue(allUsers.contains(user));
-		assertTrue(allUsers.contains(user2));
+		proximityIndex.update(new VisitedLocation(userId, attraction, new Date()));
+		proximityIndex.update(new VisitedLocation(userId, attraction, new Date()));
+		
+		assertEquals(2, catalogRequests.get());
+		assertTrue(proximityIndex.getUsersNear(attraction.attractionName).contains(userId));
 	}
 	
 	@Test
@@ -87,7 +265,7 @@ public class TestTourGuideService {
 		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
 		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
 		
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 		
 		assertEquals(user.getUserId(), visitedLocation.userId);
 	}
@@ -105,7 +283,7 @@ public class TestTourGuideService {
 		
 		List<Attraction> attractions = tourGuideService.getNearByAttractions(visitedLocation);
 		
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 		
 		assertEquals(5, attractions.size());
 	}
@@ -120,10 +298,55 @@ public class TestTourGuideService {
 
 		List<Provider> providers = tourGuideService.getTripDeals(user);
 		
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 		
 		assertEquals(10, providers.size());
 	}
 	
+	@Test
+	public void storedTripDealsServedUntilPreferencesChange() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		List<Provider> providers = tourGuideService.getTripDeals(user);
+		List<Provider> storedProviders = tourGuideService.getTripDeals(user);
+		UserPreferences userPreferences = new UserPreferences();
+		userPreferences.setNumberOfAdults(2);
+		user.setUserPreferences(userPreferences);
+		List<Provider> requotedProviders = tourGuideService.getTripDeals(user);
+		
+		tourGuideService.close();
+		
+		assertSame(providers, storedProviders);
+		assertNotSame(providers, requotedProviders);
+		assertEquals(2, user.getTripDealsQuote().numberOfAdults);
+	}
+	
+	@Test
+	public void storedTripDealsServedUnquotedWhileTripPricerUnavailable() {
+		TripPricer unavailableTripPricer = new TripPricer() {
+			@Override
+			public List<Provider> getPrice(String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints) {
+				throw new IllegalStateException("TripPricer is down");
+			}
+		};
+		TieredUserStore userStore = new TieredUserStore(new UserStoreSettings());
+		TripDealsRefresher tripDealsRefresher = new TripDealsRefresher(new TripPricerClient(unavailableTripPricer), userStore,
+				new TripDealsSettings());
+		
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		List<Provider> storedProviders = Collections.singletonList(new Provider(UUID.randomUUID(), "provider", 100));
+		user.setTripDeals(storedProviders);
+		List<Provider> providers = tripDealsRefresher.getTripDeals(user);
+		tripDealsRefresher.shutdown();
+		userStore.shutdown();
+		
+		assertSame(storedProviders, providers);
+		assertNull(user.getTripDealsQuote());
+	}
+	
 	
 }
@@ -0,0 +1,152 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import rewardCentral.RewardCentral;
+import tourGuide.client.GpsUtilClient;
+import tourGuide.client.RewardCentralClient;
+import tourGuide.client.TripPricerClient;
+import tourGuide.execution.ExecutionSettings;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tourGuide.store.AttractionProximityIndex;
+import tourGuide.store.LastLocationStore;
+import tourGuide.store.TieredUserStore;
+import tourGuide.store.UserStoreSettings;
+import tourGuide.tracker.Tracker;
+import tourGuide.tracker.TrackerPass;
+import tourGuide.tripdeals.TripDealsRefresher;
+import tourGuide.tripdeals.TripDealsSettings;
+import tripPricer.TripPricer;
+
+public class TestTracker {
+	
+	// Enough users for a pass at one permit to outlast three progress checks
+	private static final int USER_NUMBER = 50;
+	private static final long GPS_LATENCY_MILLIS = 20;
+	
+	// Answers after a fixed latency, unlike the library and its random one
+	private static class FixedLatencyGpsUtil extends GpsUtil {
+		private final List<Attraction> attractions = super.getAttractions();
+		
+		@Override
+		public VisitedLocation getUserLocation(UUID userId) {
+			try {
+				TimeUnit.MILLISECONDS.sleep(GPS_LATENCY_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			Location location = new Location(ThreadLocalRandom.current().nextDouble(-85, 85), ThreadLocalRandom.current().nextDouble(-180, 180));
+			return new VisitedLocation(userId, location, new Date());
+		}
+		
+		@Override
+		public List<Attraction> getAttractions() {
+			return attractions;
+		}
+	}
+	
+	private static class FixedRewardCentral extends RewardCentral {
+		@Override
+		public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+			return 100;
+		}
+	}
+	
+	private TourGuideService tourGuideService;
+	private ExecutionSettings executionSettings;
+	
+	@Before
+	public void setUp() {
+		GpsUtilClient gpsUtilClient = new GpsUtilClient(new FixedLatencyGpsUtil());
+		RewardsService rewardsService = new RewardsService(gpsUtilClient, new RewardCentralClient(new FixedRewardCentral()));
+		TieredUserStore userStore = new TieredUserStore(new UserStoreSettings());
+		TripDealsRefresher tripDealsRefresher = new TripDealsRefresher(new TripPricerClient(new TripPricer()), userStore, new TripDealsSettings());
+		executionSettings = new ExecutionSettings();
+		executionSettings.setTrackerConcurrency(1);
+		executionSettings.setTrackerMaxConcurrency(4);
+		executionSettings.setTrackerProgressIntervalMillis(50);
+		InternalTestHelper.setInternalUserNumber(USER_NUMBER);
+		tourGuideService = new TourGuideService(gpsUtilClient, rewardsService, tripDealsRefresher, executionSettings, userStore,
+				new LastLocationStore(), new AttractionProximityIndex(gpsUtilClient::getAttractions));
+	}
+	
+	@After
+	public void tearDown() {
+		tourGuideService.close();
+	}
+	
+	@Test
+	public void passOverSlaRaisesConcurrencyThenShedsRewards() throws InterruptedException {
+		executionSettings.setTrackerSlaMillis(1);
+		Tracker tracker = new Tracker(tourGuideService, executionSettings);
+		
+		TrackerPass pass = tracker.trackUsers(tourGuideService.getAllUserNames());
+		tracker.stopTracking();
+		
+		assertEquals(USER_NUMBER, pass.getDoneUsers());
+		assertEquals(4, tracker.getConcurrency());
+		assertTrue(pass.isRewardsShed());
+		assertEquals(1, tracker.getPassHistory().size());
+	}
+	
+	@Test
+	public void concurrencyCappedByClientPool() throws InterruptedException {
+		executionSettings.setTrackerSlaMillis(1);
+		executionSettings.setTrackerShedRewards(false);
+		Tracker tracker = new Tracker(tourGuideService, executionSettings, 2);
+		
+		TrackerPass pass = tracker.trackUsers(tourGuideService.getAllUserNames());
+		tracker.stopTracking();
+		
+		assertEquals(USER_NUMBER, pass.getDoneUsers());
+		assertEquals(2, tracker.getConcurrency());
+		assertFalse(pass.isRewardsShed());
+	}
+	
+	@Test
+	public void concurrencyLoweredAfterPassWithinSla() throws InterruptedException {
+		executionSettings.setTrackerSlaMillis(1);
+		executionSettings.setTrackerShedRewards(false);
+		Tracker tracker = new Tracker(tourGuideService, executionSettings);
+		tracker.trackUsers(tourGuideService.getAllUserNames());
+		int raisedConcurrency = tracker.getConcurrency();
+		
+		executionSettings.setTrackerSlaMillis(TimeUnit.MINUTES.toMillis(1));
+		tracker.trackUsers(tourGuideService.getAllUserNames());
+		tracker.stopTracking();
+		
+		assertEquals(4, raisedConcurrency);
+		assertEquals(2, tracker.getConcurrency());
+	}
+	
+	@Test
+	public void slaDerivedFromPollingIntervalUnlessSet() {
+		Tracker tracker = new Tracker(tourGuideService, executionSettings);
+		long derivedSlaMillis = tracker.getSlaMillis();
+		executionSettings.setTrackerSlaMillis(1000);
+		long setSlaMillis = tracker.getSlaMillis();
+		tracker.stopTracking();
+		
+		assertEquals(TimeUnit.MINUTES.toMillis(15), derivedSlaMillis);
+		assertEquals(1000, setSlaMillis);
+	}
+
+}
@@ -0,0 +1,117 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.store.TieredUserStore;
+import tourGuide.store.UserStoreSettings;
+import tourGuide.user.User;
+import tourGuide.user.UserReward;
+
+public class TestUserStore {
+
+	@Test
+	public void idleUserIsHydratedOnLookup() {
+		TieredUserStore userStore = new TieredUserStore(getEvictingSettings());
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), new Location(33.817595, -117.922008), new Date());
+		user.addToVisitedLocations(visitedLocation);
+		user.addUserReward(new UserReward(visitedLocation, new Attraction("Disneyland", "Anaheim", "CA", 33.817595, -117.922008), 250));
+		userStore.addIfAbsent(user);
+		
+		userStore.evict();
+		int compactedUsers = userStore.getCompactedUserCount();
+		User hydratedUser = userStore.get("jon");
+		userStore.shutdown();
+		
+		assertEquals(1, compactedUsers);
+		assertEquals(0, userStore.getCompactedUserCount());
+		assertEquals(user.getUserId(), hydratedUser.getUserId());
+		assertEquals(user.getEmailAddress(), hydratedUser.getEmailAddress());
+		assertEquals(visitedLocation.timeVisited, hydratedUser.getLastVisitedLocation().timeVisited);
+		assertEquals(250, hydratedUser.getCumulativeRewardPoints());
+		assertEquals("Disneyland", hydratedUser.getUserRewards().get(0).attraction.attractionName);
+	}
+	
+	@Test
+	public void userInUseIsNotCompacted() {
+		TieredUserStore userStore = new TieredUserStore(getEvictingSettings());
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		userStore.addIfAbsent(user);
+		
+		int compactedUsers = userStore.use("jon", usedUser -> {
+			userStore.evict();
+			usedUser.setPhoneNumber("111");
+			return userStore.getCompactedUserCount();
+		});
+		userStore.evict();
+		User hydratedUser = userStore.get("jon");
+		userStore.shutdown();
+		
+		assertEquals(0, compactedUsers);
+		assertEquals("111", hydratedUser.getPhoneNumber());
+	}
+	
+	@Test
+	public void compactedUserIsNotAddedAgain() {
+		TieredUserStore userStore = new TieredUserStore(getEvictingSettings());
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		userStore.addIfAbsent(user);
+		
+		userStore.evict();
+		boolean added = userStore.addIfAbsent(new User(UUID.randomUUID(), "jon", "111", "jon@tourGuide.com"));
+		User hydratedUser = userStore.get("jon");
+		userStore.shutdown();
+		
+		assertFalse(added);
+		assertEquals(user.getUserId(), hydratedUser.getUserId());
+		assertEquals(1, userStore.size());
+	}
+	
+	@Test
+	public void usersOverOffHeapLimitAreCounted() {
+		UserStoreSettings settings = getEvictingSettings();
+		settings.setMaxCompactedBytes(1);
+		settings.setMaxHotUsers(1);
+		TieredUserStore userStore = new TieredUserStore(settings);
+		for(int i = 0; i < 3; i++) {
+			userStore.addIfAbsent(new User(UUID.randomUUID(), "jon" + i, "000", "jon" + i + "@tourGuide.com"));
+		}
+		
+		userStore.evict();
+		int overflowUsers = userStore.getOverflowUserCount();
+		userStore.shutdown();
+		
+		assertEquals(1, userStore.getCompactedUserCount());
+		assertEquals(1, overflowUsers);
+	}
+	
+	@Test
+	public void unknownUserIsNotFound() {
+		TieredUserStore userStore = new TieredUserStore(new UserStoreSettings());
+		User user = userStore.get("jon");
+		userStore.shutdown();
+		
+		assertNull(user);
+	}
+	
+	private UserStoreSettings getEvictingSettings() {
+		// Evicted on demand only, as soon as the user is not in use
+		UserStoreSettings settings = new UserStoreSettings();
+		settings.setIdleMillis(0);
+		settings.setMinResidencyMillis(0);
+		settings.setEvictionIntervalMillis(TimeUnit.HOURS.toMillis(1));
+		return settings;
+	}
+
+}
@@ -0,0 +1,80 @@
+package tourGuide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import gpsUtil.GpsUtil;
+import rewardCentral.RewardCentral;
+import tourGuide.client.GpsUtilClient;
+import tourGuide.client.RewardCentralClient;
+import tourGuide.eventlog.EventLog;
+import tourGuide.eventlog.EventReplay;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tourGuide.user.User;
+import tourGuide.warmup.WarmupEndpoint;
+import tourGuide.warmup.WarmupService;
+import tourGuide.warmup.WarmupSettings;
+
+public class TestWarmupService {
+
+	@Test
+	public void readyOnceWarmedUp() throws Exception {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardCentral rewardCentral = new RewardCentral();
+		RewardsService rewardsService = new RewardsService(gpsUtil, rewardCentral);
+		EventLog eventLog = new EventLog(Files.createTempDirectory("eventlog"), 4096);
+		rewardsService.setEventLog(eventLog);
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.setEventLog(eventLog);
+		tourGuideService.tracker.stopTracking();
+		WarmupSettings settings = new WarmupSettings();
+		settings.setIterations(100);
+		WarmupService warmupService = new WarmupService(tourGuideService, new GpsUtilClient(gpsUtil), new RewardCentralClient(rewardCentral),
+				settings);
+		
+		boolean readyBefore = warmupService.isReady();
+		warmupService.warmUp();
+		tourGuideService.close();
+		Map<UUID, User> loggedUsers = new EventReplay(eventLog, gpsUtil::getAttractions, 1)
+				.replayRewards(new RewardsService(gpsUtil, rewardCentral));
+		eventLog.close();
+		
+		assertFalse(readyBefore);
+		assertTrue(warmupService.isReady());
+		assertTrue(tourGuideService.getAllCurrentLocations().isEmpty());
+		assertTrue(loggedUsers.isEmpty());
+	}
+	
+	@Test
+	public void endpointUnavailableUntilWarmedUp() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardCentral rewardCentral = new RewardCentral();
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, new RewardsService(gpsUtil, rewardCentral));
+		tourGuideService.tracker.stopTracking();
+		WarmupSettings settings = new WarmupSettings();
+		settings.setIterations(100);
+		WarmupService warmupService = new WarmupService(tourGuideService, new GpsUtilClient(gpsUtil), new RewardCentralClient(rewardCentral),
+				settings);
+		WarmupEndpoint warmupEndpoint = new WarmupEndpoint(warmupService);
+		
+		int statusBefore = warmupEndpoint.warmup().getStatus();
+		warmupService.warmUp();
+		int statusAfter = warmupEndpoint.warmup().getStatus();
+		tourGuideService.close();
+		
+		assertEquals(503, statusBefore);
+		assertEquals(200, statusAfter);
+	}
+
+}